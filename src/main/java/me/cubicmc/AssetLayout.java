@@ -0,0 +1,142 @@
+package me.cubicmc;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Distribución por nombre de los assets de versiones antiguas. Los índices
+ * "legacy" (virtual) y "pre-1.6" (map_to_resources) esperan los ficheros con
+ * su nombre original en lugar de por hash; se enlazan desde
+ * shared/assets/objects para no duplicar datos.
+ */
+public class AssetLayout {
+    private static final Logger LOGGER = Logger.getLogger(AssetLayout.class.getName());
+
+    /**
+     * Indica si el índice necesita una distribución por nombre.
+     */
+    public static boolean needsLayout(JsonObject assetIndex) {
+        return isVirtual(assetIndex) || mapsToResources(assetIndex);
+    }
+
+    public static boolean isVirtual(JsonObject assetIndex) {
+        return assetIndex.has("virtual") && assetIndex.get("virtual").getAsBoolean();
+    }
+
+    public static boolean mapsToResources(JsonObject assetIndex) {
+        return assetIndex.has("map_to_resources") && assetIndex.get("map_to_resources").getAsBoolean();
+    }
+
+    /**
+     * Carga el índice descargado en shared/assets/indexes, o null si no existe.
+     */
+    public static JsonObject loadIndex(String gameDir, String assetIndexId) throws IOException {
+        Path indexFile = Paths.get(gameDir, "shared", "assets", "indexes", assetIndexId + ".json");
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+        return JsonParser.parseString(Files.readString(indexFile)).getAsJsonObject();
+    }
+
+    /**
+     * Directorio que el juego recibe como ${game_assets} para este índice.
+     */
+    public static Path getGameAssetsDir(JsonObject assetIndex, String assetIndexId, String gameDir) {
+        if (assetIndex != null && mapsToResources(assetIndex)) {
+            return Paths.get(gameDir, "resources").toAbsolutePath().normalize();
+        }
+        if (assetIndex != null && isVirtual(assetIndex)) {
+            return Paths.get(gameDir, "shared", "assets", "virtual", assetIndexId).toAbsolutePath().normalize();
+        }
+        return Paths.get(gameDir, "shared", "assets").toAbsolutePath().normalize();
+    }
+
+    /**
+     * Crea los ficheros con nombre a partir del almacén de objetos. Los que ya
+     * están enlazados o tienen el tamaño correcto no se tocan, así que repetir
+     * la operación solo cuesta un stat por asset.
+     */
+    public static void apply(JsonObject assetIndex, String assetIndexId, String gameDir) throws IOException {
+        if (!needsLayout(assetIndex)) {
+            return;
+        }
+
+        Path objectsDir = Paths.get(gameDir, "shared", "assets", "objects").toAbsolutePath().normalize();
+        Map<Path, String> roots = new ConcurrentHashMap<>();
+        if (isVirtual(assetIndex)) {
+            roots.put(Paths.get(gameDir, "shared", "assets", "virtual", assetIndexId).toAbsolutePath().normalize(), "virtual");
+        }
+        if (mapsToResources(assetIndex)) {
+            roots.put(Paths.get(gameDir, "resources").toAbsolutePath().normalize(), "resources");
+        }
+
+        JsonObject objects = assetIndex.getAsJsonObject("objects");
+        Map<LinkUtil.Method, AtomicInteger> methods = new EnumMap<>(LinkUtil.Method.class);
+        for (LinkUtil.Method method : LinkUtil.Method.values()) {
+            methods.put(method, new AtomicInteger(0));
+        }
+        AtomicInteger unchanged = new AtomicInteger(0);
+        AtomicInteger missing = new AtomicInteger(0);
+
+        for (Map.Entry<Path, String> root : roots.entrySet()) {
+            Path rootDir = root.getKey();
+            Files.createDirectories(rootDir);
+            LOGGER.info("🔗 Preparando assets por nombre (" + root.getValue() + ") en " + rootDir);
+
+            // Solo operaciones de metadatos: en paralelo sale barato
+            objects.entrySet().parallelStream().forEach(entry -> {
+                try {
+                    layoutAsset(entry, rootDir, objectsDir, methods, unchanged, missing);
+                } catch (IOException e) {
+                    LOGGER.warning("⚠️ No se pudo preparar el asset " + entry.getKey() + ": " + e.getMessage());
+                    missing.incrementAndGet();
+                }
+            });
+        }
+
+        LOGGER.info("✅ Assets por nombre listos para " + assetIndexId + ": "
+                + methods.get(LinkUtil.Method.HARDLINK).get() + " hardlinks, "
+                + methods.get(LinkUtil.Method.REFLINK).get() + " reflinks, "
+                + methods.get(LinkUtil.Method.COPY).get() + " copias, "
+                + unchanged.get() + " sin cambios, "
+                + missing.get() + " sin objeto");
+    }
+
+    private static void layoutAsset(Map.Entry<String, JsonElement> entry, Path rootDir, Path objectsDir,
+                                    Map<LinkUtil.Method, AtomicInteger> methods,
+                                    AtomicInteger unchanged, AtomicInteger missing) throws IOException {
+        JsonObject asset = entry.getValue().getAsJsonObject();
+        String hash = asset.get("hash").getAsString();
+        long size = asset.get("size").getAsLong();
+
+        Path target = rootDir.resolve(entry.getKey()).normalize();
+        if (!target.startsWith(rootDir)) {
+            LOGGER.warning("⚠️ Nombre de asset fuera del directorio destino: " + entry.getKey());
+            return;
+        }
+
+        Path object = objectsDir.resolve(hash.substring(0, 2)).resolve(hash);
+        if (!Files.exists(object)) {
+            missing.incrementAndGet();
+            return;
+        }
+
+        if (Files.exists(target) && (LinkUtil.isSameFile(object, target) || Files.size(target) == size)) {
+            unchanged.incrementAndGet();
+            return;
+        }
+
+        methods.get(LinkUtil.linkOrCopy(object, target)).incrementAndGet();
+    }
+}
@@ -0,0 +1,324 @@
+package me.cubicmc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Descarga de objetos de assets en tres etapas unidas por colas acotadas:
+ * red (varios hilos) → SHA-1 (pocos hilos) → escritura (un hilo dedicado).
+ *
+ * Los bytes en vuelo están limitados por un presupuesto de memoria: la red
+ * no descarga un objeto hasta reservar su tamaño, y la reserva se libera al
+ * escribirlo. Los objetos grandes (más de un cuarto del presupuesto) se
+ * descargan directamente a disco. Como además el productor se bloquea cuando
+ * la cola de red está llena, la memoria no depende del tamaño del índice.
+ *
+ * Los fallos de un objeto se cuentan y no detienen el pipeline. Si un hilo
+ * de una etapa muere por otro motivo, el pipeline entero se aborta y
+ * {@link #submit}/{@link #finish} lanzan IOException en lugar de bloquearse.
+ */
+class AssetPipeline implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(AssetPipeline.class.getName());
+
+    private static final int MAX_RETRIES = 3;
+
+    /**
+     * Objeto pendiente de descarga.
+     */
+    record Job(String name, String hash, long size, String url, Path dest) {
+    }
+
+    private record Buffer(Job job, byte[] data, int permits, long start) {
+    }
+
+    public record Result(int downloaded, int failed, long bytes) {
+    }
+
+    // Marcadores de fin de cada cola
+    private static final Job END = new Job(null, null, 0, null, null);
+    private static final Buffer END_BUFFER = new Buffer(null, null, 0, 0);
+
+    private final BlockingQueue<Job> network;
+    private final BlockingQueue<Buffer> hashing;
+    private final BlockingQueue<Buffer> writing;
+    private final Semaphore memory;
+    private final long directThreshold;
+    private final int networkThreads;
+    private final int hashThreads;
+    private final int total;
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicInteger networkAlive;
+    private final AtomicInteger hashAlive;
+    private final AtomicInteger downloaded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile boolean aborted;
+    private volatile boolean finished;
+
+    /**
+     * @param total número de objetos del índice, solo para los mensajes de progreso
+     */
+    AssetPipeline(int networkThreads, long memoryBudget, int total) {
+        this.networkThreads = Math.max(1, networkThreads);
+        this.hashThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        this.total = total;
+        this.network = new ArrayBlockingQueue<>(this.networkThreads * 2);
+        this.hashing = new ArrayBlockingQueue<>(this.hashThreads * 4);
+        this.writing = new ArrayBlockingQueue<>(32);
+        // Permisos en KB para que presupuestos de varios GB quepan en un int
+        int permits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget >> 10));
+        this.memory = new Semaphore(permits);
+        this.directThreshold = Math.max(64 * 1024, ((long) permits << 10) / 4);
+        this.networkAlive = new AtomicInteger(this.networkThreads);
+        this.hashAlive = new AtomicInteger(this.hashThreads);
+
+        for (int i = 0; i < this.networkThreads; i++) {
+            start("asset-net-" + i, this::networkLoop);
+        }
+        for (int i = 0; i < hashThreads; i++) {
+            start("asset-hash-" + i, this::hashLoop);
+        }
+        start("asset-writer", this::writeLoop);
+    }
+
+    private interface Loop {
+        void run() throws InterruptedException;
+    }
+
+    private void start(String name, Loop loop) {
+        Thread thread = new Thread(() -> {
+            try {
+                loop.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort();
+            } catch (RuntimeException | Error e) {
+                LOGGER.log(Level.SEVERE, "❌ El hilo " + name + " del pipeline de assets ha fallado", e);
+                abort();
+            }
+        }, name);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Encola un objeto. Se bloquea mientras la etapa de red esté llena.
+     */
+    void submit(Job job) throws IOException, InterruptedException {
+        try {
+            if (!offer(network, job)) {
+                throw new IOException("Pipeline de assets abortado");
+            }
+        } catch (InterruptedException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Espera a que se procesen todos los objetos encolados.
+     */
+    Result finish() throws IOException, InterruptedException {
+        try {
+            for (int i = 0; i < networkThreads; i++) {
+                offer(network, END);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            finished = true;
+        } catch (InterruptedException e) {
+            abort();
+            throw e;
+        }
+        if (aborted) {
+            throw new IOException("Pipeline de assets abortado: " + downloaded.get() + " descargados, "
+                    + failed.get() + " fallidos");
+        }
+        return new Result(downloaded.get(), failed.get(), bytes.get());
+    }
+
+    /**
+     * Aborta el pipeline si no se llegó a terminar {@link #finish()}, por
+     * ejemplo porque falló el recorrido del índice: sin esto sus hilos se
+     * quedarían esperando en take() con los permisos de memoria tomados.
+     * Espera (con límite) a que salgan, para que nadie escriba en el almacén
+     * después de soltar su lock.
+     */
+    @Override
+    public void close() {
+        if (finished) {
+            return;
+        }
+        abort();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive() && System.nanoTime() < deadline) {
+                try {
+                    thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void abort() {
+        aborted = true;
+        threads.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Encola sin bloquearse para siempre: devuelve false si el pipeline se
+     * aborta (la etapa siguiente puede no tener ya hilos que consuman).
+     */
+    private <T> boolean offer(BlockingQueue<T> queue, T item) throws InterruptedException {
+        while (!aborted) {
+            if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void networkLoop() throws InterruptedException {
+        try {
+            Job job;
+            while ((job = network.take()) != END) {
+                long start = System.nanoTime();
+                if (job.size() > directThreshold) {
+                    // Objeto grande: directo a disco, el hash se calcula sobre el fichero
+                    try {
+                        DownloadUtil.downloadFile(job.url(), job.dest().toString(), job.hash());
+                        completed(job, job.size());
+                    } catch (IOException | RuntimeException e) {
+                        failed(job, e);
+                    }
+                    continue;
+                }
+                int permits = (int) Math.max(1, (job.size() + 1023) >> 10);
+                memory.acquire(permits);
+                byte[] data;
+                try {
+                    data = fetch(job);
+                } catch (RuntimeException e) {
+                    // URL mal formada, fallo interno del cliente HTTP...
+                    failed(job, e);
+                    data = null;
+                }
+                if (data == null || !offer(hashing, new Buffer(job, data, permits, start))) {
+                    memory.release(permits);
+                }
+            }
+        } finally {
+            if (networkAlive.decrementAndGet() == 0) {
+                for (int i = 0; i < hashThreads; i++) {
+                    offer(hashing, END_BUFFER);
+                }
+            }
+        }
+    }
+
+    private byte[] fetch(Job job) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return DownloadUtil.downloadBytes(job.url(), (int) job.size());
+            } catch (IOException e) {
+                if (attempt >= MAX_RETRIES) {
+                    failed(job, e);
+                    return null;
+                }
+                LOGGER.warning("❌ Error descargando " + job.url() + ": " + e.getMessage()
+                        + " (" + attempt + "/" + MAX_RETRIES + ")");
+                Thread.sleep(1000L * attempt);
+            }
+        }
+    }
+
+    private void hashLoop() throws InterruptedException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            Buffer buffer;
+            while ((buffer = hashing.take()) != END_BUFFER) {
+                Job job = buffer.job();
+                String actual = DownloadUtil.toHex(digest.digest(buffer.data()));
+                if (actual.equalsIgnoreCase(job.hash())) {
+                    if (!offer(writing, buffer)) {
+                        memory.release(buffer.permits());
+                    }
+                    continue;
+                }
+                // Contenido corrupto: se libera la memoria y se reintenta por la ruta normal
+                memory.release(buffer.permits());
+                LOGGER.warning("❌ Verificación de hash SHA-1 fallida para " + job.name() + ", reintentando");
+                try {
+                    DownloadUtil.downloadFile(job.url(), job.dest().toString(), job.hash());
+                    completed(job, job.size());
+                } catch (IOException | RuntimeException e) {
+                    failed(job, e);
+                }
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 no disponible", e);
+        } finally {
+            if (hashAlive.decrementAndGet() == 0) {
+                offer(writing, END_BUFFER);
+            }
+        }
+    }
+
+    private void writeLoop() throws InterruptedException {
+        Set<Path> folders = new HashSet<>();
+        Buffer buffer;
+        while ((buffer = writing.take()) != END_BUFFER) {
+            Job job = buffer.job();
+            try {
+                Path folder = job.dest().getParent();
+                if (folders.add(folder)) {
+                    Files.createDirectories(folder);
+                }
+                Path temp = folder.resolve(job.hash() + ".tmp");
+                Files.write(temp, buffer.data());
+                Files.move(temp, job.dest(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                DownloadUtil.notifyDownloaded(job.url(), job.dest(), buffer.start());
+                completed(job, buffer.data().length);
+            } catch (IOException | RuntimeException e) {
+                failed(job, e);
+            } finally {
+                memory.release(buffer.permits());
+            }
+        }
+    }
+
+    private void completed(Job job, long size) {
+        bytes.addAndGet(size);
+        LOGGER.info("✅ Asset descargado y verificado: " + job.name() + " (" + downloaded.incrementAndGet()
+                + " nuevos de " + total + ")");
+    }
+
+    private void failed(Job job, Exception e) {
+        failed.incrementAndGet();
+        LOGGER.log(Level.SEVERE, "❌ Error descargando asset " + job.name() + ": " + e.getMessage(), e);
+    }
+}
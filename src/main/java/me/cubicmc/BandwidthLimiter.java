@@ -0,0 +1,119 @@
+package me.cubicmc;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Límite global de ancho de banda para todas las descargas del launcher,
+ * implementado como un token bucket compartido: cada byte leído consume un
+ * token y los tokens se reponen al ritmo configurado. El límite se puede
+ * cambiar en caliente y afecta a las descargas en curso.
+ *
+ * Las lecturas prioritarias (metadatos pequeños) consumen tokens pero nunca
+ * esperan: pueden dejar el bucket en deuda, que pagan después las descargas
+ * normales. Así el límite se respeta en media sin bloquear el plan de instalación.
+ */
+public class BandwidthLimiter {
+
+    // Ráfaga máxima acumulable, en segundos de tasa
+    private static final double BURST_SECONDS = 0.5;
+    // Espera máxima de una vez, para reaccionar pronto a un cambio de límite
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static volatile long bytesPerSecond = 0;
+    private static double tokens = 0;
+    private static long lastRefill = System.nanoTime();
+
+    /**
+     * Fija el límite global en bytes por segundo. 0 o un valor negativo lo desactiva.
+     */
+    public static void setLimit(long limit) {
+        LOCK.lock();
+        try {
+            refill(System.nanoTime());
+            bytesPerSecond = Math.max(0, limit);
+            // Al cambiar el límite se descarta la ráfaga acumulada pero se mantiene la deuda
+            tokens = Math.min(tokens, 0);
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    public static long getLimit() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Consume bytes del bucket, esperando si no hay tokens suficientes.
+     */
+    static void acquire(int bytes, boolean priority) throws InterruptedException {
+        while (bytesPerSecond > 0) {
+            long waitNanos;
+            LOCK.lock();
+            try {
+                long rate = bytesPerSecond;
+                if (rate <= 0) {
+                    return;
+                }
+                refill(System.nanoTime());
+                if (priority || tokens >= 0) {
+                    // Se reserva ya; si queda deuda, la pagan las siguientes lecturas normales
+                    tokens -= bytes;
+                    return;
+                }
+                waitNanos = Math.min(MAX_WAIT_NANOS, (long) (-tokens * 1_000_000_000L / rate));
+            } finally {
+                LOCK.unlock();
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(1, waitNanos));
+        }
+    }
+
+    // Debe llamarse con el lock tomado
+    private static void refill(long now) {
+        long rate = bytesPerSecond;
+        if (rate > 0) {
+            tokens = Math.min(tokens + (now - lastRefill) * rate / 1_000_000_000.0, rate * BURST_SECONDS);
+        }
+        lastRefill = now;
+    }
+
+    /**
+     * Envuelve un stream para que sus lecturas pasen por el límite global.
+     */
+    static InputStream wrap(InputStream in, boolean priority) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    take(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    take(read);
+                }
+                return read;
+            }
+
+            private void take(int bytes) throws IOException {
+                try {
+                    acquire(bytes, priority);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Descarga interrumpida");
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package me.cubicmc;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Precarga en la caché de páginas del sistema los jars del classpath y los
+ * natives antes de lanzar el juego, para que la JVM hija no tenga que leerlos
+ * del disco uno a uno durante el arranque.
+ */
+public class ClasspathPrewarmer {
+
+    private static final Logger LOGGER = LogManager.getLogger(ClasspathPrewarmer.class);
+
+    // Los ficheros se mapean por segmentos para no reservar demasiado espacio de direcciones
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Resultado de la precarga.
+     */
+    public record Result(int files, long bytes, long millis) {
+
+        public double megabytesPerSecond() {
+            return millis == 0 ? 0 : (bytes / 1048576.0) / (millis / 1000.0);
+        }
+    }
+
+    /**
+     * Lanza la precarga en segundo plano. El futuro se completa cuando todos los
+     * ficheros se han leído; los errores de ficheros individuales se ignoran.
+     */
+    public static CompletableFuture<Result> start(List<Path> files, int threadCount) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threadCount), r -> {
+            Thread thread = new Thread(r, "prewarm");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        AtomicInteger count = new AtomicInteger(0);
+        AtomicLong bytes = new AtomicLong(0);
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(files.size());
+        for (Path file : files) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                long read = warm(file);
+                if (read >= 0) {
+                    count.incrementAndGet();
+                    bytes.addAndGet(read);
+                }
+            }, executor));
+        }
+
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, error) -> {
+                    executor.shutdown();
+                    return new Result(count.get(), bytes.get(), (System.nanoTime() - start) / 1_000_000);
+                });
+    }
+
+    /**
+     * Lista los ficheros a precargar: entradas del classpath y contenido del
+     * directorio de natives.
+     */
+    public static List<Path> collectFiles(List<String> classpath, Path nativesDir) {
+        List<Path> files = new ArrayList<>();
+        for (String entry : classpath) {
+            files.add(Path.of(entry));
+        }
+        if (Files.isDirectory(nativesDir)) {
+            try (Stream<Path> natives = Files.walk(nativesDir)) {
+                natives.filter(Files::isRegularFile).forEach(files::add);
+            } catch (IOException e) {
+                LOGGER.debug("No se pudo listar el directorio de natives {}: {}", nativesDir, e.getMessage());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Mapea el fichero y fuerza la carga de sus páginas. load() avisa al sistema
+     * (readahead) y toca cada página, de modo que quedan en la caché compartida
+     * que después usará el proceso del juego. Si el mapeo falla, se lee el
+     * fichero de forma secuencial.
+     */
+    private static long warm(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            try {
+                for (long position = 0; position < size; position += SEGMENT_SIZE) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(SEGMENT_SIZE, size - position));
+                    buffer.load();
+                }
+            } catch (IOException | UnsupportedOperationException e) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+                long position = 0;
+                int read;
+                while ((read = channel.read(buffer, position)) > 0) {
+                    position += read;
+                    buffer.clear();
+                }
+            }
+            return size;
+        } catch (IOException e) {
+            LOGGER.debug("No se pudo precargar {}: {}", file, e.getMessage());
+            return -1;
+        }
+    }
+}
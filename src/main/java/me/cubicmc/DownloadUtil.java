@@ -10,13 +10,20 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -29,11 +36,77 @@ public class DownloadUtil {
             .version(HttpClient.Version.HTTP_1_1)
             .build();
 
+    // Ficheros a partir de este tamaño se descargan por rangos en paralelo
+    private static volatile long chunkedThreshold = 16L * 1024 * 1024;
+    private static final long CHUNK_SIZE = 4L * 1024 * 1024;
+
+    private static volatile String resourcesBaseUrl = "https://resources.download.minecraft.net/";
+
+    // Bytes de assets que pueden estar en memoria a la vez entre la red y el disco
+    private static volatile long assetMemoryBudget = 64L * 1024 * 1024;
+    // Objetos por lote de las descargas en segundo plano: entre lotes se suelta el lock del almacén
+    private static final int BACKGROUND_BATCH_SIZE = 128;
+
+    /**
+     * Qué assets descargar. Los diferidos (sonidos y música) solo se leen al
+     * reproducirse, así que el juego puede arrancar sin ellos.
+     */
+    public enum AssetScope {
+        ALL, CRITICAL, DEFERRED
+    }
+
+    /**
+     * Recibe cada descarga completada y verificada (para medir latencias y volumen).
+     */
+    interface DownloadListener {
+        void downloaded(String url, long bytes, long nanos);
+    }
+
+    private static volatile DownloadListener downloadListener;
+
+    static void setDownloadListener(DownloadListener listener) {
+        downloadListener = listener;
+    }
+
+    /**
+     * Cambia la URL base de los objetos de assets (espejos o servidores locales).
+     */
+    public static void setResourcesBaseUrl(String url) {
+        resourcesBaseUrl = url.endsWith("/") ? url : url + "/";
+    }
+
+    /**
+     * Cambia la memoria máxima que ocupan los assets descargados pendientes de
+     * verificar y escribir. Los objetos de más de un cuarto del presupuesto se
+     * descargan directamente a disco.
+     */
+    public static void setAssetMemoryBudget(long bytes) {
+        assetMemoryBudget = bytes;
+    }
+
+    /**
+     * Cambia el tamaño mínimo para descargar un fichero por rangos en paralelo.
+     * Un valor de Long.MAX_VALUE desactiva la descarga por rangos.
+     */
+    public static void setChunkedThreshold(long bytes) {
+        chunkedThreshold = bytes;
+    }
+
     /**
      * Descarga un fichero desde la URL indicada a la ruta absoluta outputPath.
      */
-    private static void downloadFile(String urlStr, String outputPath, String expectedSha1)
+    static void downloadFile(String urlStr, String outputPath, String expectedSha1)
+            throws IOException, InterruptedException {
+        downloadFile(urlStr, outputPath, expectedSha1, false);
+    }
+
+    /**
+     * Descarga un fichero respetando el límite global de ancho de banda. Las
+     * descargas prioritarias (metadatos) cuentan para el límite pero no esperan.
+     */
+    static void downloadFile(String urlStr, String outputPath, String expectedSha1, boolean priority)
             throws IOException, InterruptedException {
+        long start = System.nanoTime();
         Path output = Paths.get(outputPath);
         boolean verified = false;
         int retries = 0;
@@ -50,11 +123,14 @@ public class DownloadUtil {
                         .GET()
                         .build();
                 
-                HttpResponse<Path> response =
-                        HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofFile(output));
+                HttpResponse<InputStream> response =
+                        HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofInputStream());
                 
-                if (response.statusCode() != 200) {
-                    throw new IOException("Error en la descarga: HTTP " + response.statusCode());
+                try (InputStream in = BandwidthLimiter.wrap(response.body(), priority)) {
+                    if (response.statusCode() != 200) {
+                        throw new IOException("Error en la descarga: HTTP " + response.statusCode());
+                    }
+                    Files.copy(in, output, StandardCopyOption.REPLACE_EXISTING);
                 }
                 
                 // Verificar el hash si se proporcionó uno
@@ -86,6 +162,239 @@ public class DownloadUtil {
         if (!verified) {
             throw new IOException("No se pudo verificar la descarga después de " + MAX_RETRIES + " intentos");
         }
+        notifyDownloaded(urlStr, output, start);
+    }
+
+    static void notifyDownloaded(String urlStr, Path output, long start) throws IOException {
+        DownloadListener listener = downloadListener;
+        if (listener != null) {
+            listener.downloaded(urlStr, Files.size(output), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Descarga un recurso pequeño a memoria. Falla si el tamaño no coincide con el esperado.
+     */
+    static byte[] downloadBytes(String urlStr, int expectedSize) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(urlStr))
+                .GET()
+                .build();
+        HttpResponse<InputStream> response =
+                HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = BandwidthLimiter.wrap(response.body(), false)) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Error en la descarga: HTTP " + response.statusCode());
+            }
+            byte[] data = new byte[expectedSize];
+            int read = in.readNBytes(data, 0, expectedSize);
+            if (read != expectedSize || in.read() != -1) {
+                throw new IOException("Tamaño inesperado: se esperaban " + expectedSize + " bytes");
+            }
+            return data;
+        }
+    }
+
+    /**
+     * Abre la respuesta de la URL como stream. El llamador debe cerrarlo.
+     */
+    static InputStream openStream(String urlStr) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(urlStr))
+                .GET()
+                .build();
+        HttpResponse<InputStream> response =
+                HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            response.body().close();
+            throw new IOException("Error en la descarga: HTTP " + response.statusCode());
+        }
+        return BandwidthLimiter.wrap(response.body(), false);
+    }
+
+    /**
+     * Descarga un fichero grande dividiéndolo en rangos que se piden en paralelo
+     * en el executor dado y se escriben con escrituras posicionales sobre un
+     * fichero preasignado. El SHA-1 se calcula de forma incremental según se
+     * completa el prefijo contiguo. Si el fichero es pequeño, el servidor no
+     * admite rangos o la verificación falla, se usa la descarga normal.
+     *
+     * No debe llamarse desde un hilo del propio executor.
+     */
+    static void downloadFileChunked(String urlStr, Path output, String expectedSha1, long size,
+                                    ExecutorService executor) throws IOException, InterruptedException {
+        if (size < chunkedThreshold || size <= CHUNK_SIZE || !supportsRanges(urlStr, size)) {
+            downloadFile(urlStr, output.toString(), expectedSha1);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Files.createDirectories(output.getParent());
+        Path temp = output.resolveSibling(output.getFileName() + ".part");
+        int chunks = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        LOGGER.info("⬇️ Descarga por rangos de " + output.getFileName() + ": " + chunks + " trozos de "
+                + (CHUNK_SIZE >> 20) + " MB");
+
+        boolean verified = false;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Preasignar el fichero completo
+            channel.write(ByteBuffer.allocate(1), size - 1);
+
+            ChunkHasher hasher = new ChunkHasher(channel, chunks, size);
+            List<Future<?>> futures = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    downloadRange(urlStr, channel, index * CHUNK_SIZE, Math.min(size, (index + 1) * CHUNK_SIZE) - 1);
+                    hasher.chunkDone(index);
+                    return null;
+                }));
+            }
+
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                LOGGER.warning("❌ Error en la descarga por rangos de " + urlStr + ": " + e.getCause().getMessage());
+                LOGGER.warning("   Reintentando con descarga normal");
+            }
+
+            if (hasher.isComplete()) {
+                String actualSha1 = hasher.hex();
+                if (expectedSha1 == null || expectedSha1.isEmpty() || actualSha1.equalsIgnoreCase(expectedSha1)) {
+                    verified = true;
+                } else {
+                    LOGGER.warning("❌ Verificación de hash SHA-1 fallida en la descarga por rangos de " + output);
+                }
+            }
+        }
+
+        if (verified) {
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("✅ Hash SHA-1 verificado para " + output);
+            notifyDownloaded(urlStr, output, start);
+        } else {
+            Files.deleteIfExists(temp);
+            downloadFile(urlStr, output.toString(), expectedSha1);
+        }
+    }
+
+    /**
+     * Comprueba con una petición de un byte si el servidor responde a rangos
+     * para este recurso y el tamaño total coincide.
+     */
+    private static boolean supportsRanges(String urlStr, long size) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(urlStr))
+                    .header("Range", "bytes=0-0")
+                    .GET()
+                    .build();
+            HttpResponse<Void> response = HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.discarding());
+            String contentRange = response.headers().firstValue("Content-Range").orElse("");
+            return response.statusCode() == 206 && contentRange.endsWith("/" + size);
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void downloadRange(String urlStr, FileChannel channel, long start, long end)
+            throws IOException, InterruptedException {
+        final int MAX_RETRIES = 3;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create(urlStr))
+                        .header("Range", "bytes=" + start + "-" + end)
+                        .GET()
+                        .build();
+                HttpResponse<InputStream> response =
+                        HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream in = BandwidthLimiter.wrap(response.body(), false)) {
+                    if (response.statusCode() != 206) {
+                        throw new IOException("Rango no soportado: HTTP " + response.statusCode());
+                    }
+                    byte[] buffer = new byte[64 * 1024];
+                    long position = start;
+                    int read;
+                    while ((read = in.read(buffer)) > 0) {
+                        ByteBuffer bb = ByteBuffer.wrap(buffer, 0, read);
+                        while (bb.hasRemaining()) {
+                            position += channel.write(bb, position);
+                        }
+                    }
+                    if (position != end + 1) {
+                        throw new IOException("Rango incompleto: " + (position - start) + " de " + (end - start + 1) + " bytes");
+                    }
+                }
+                return;
+            } catch (IOException e) {
+                if (attempt >= MAX_RETRIES) {
+                    throw e;
+                }
+                LOGGER.warning("❌ Error descargando rango " + start + "-" + end + ": " + e.getMessage()
+                        + " (" + attempt + "/" + MAX_RETRIES + ")");
+                Thread.sleep(1000L * attempt);
+            }
+        }
+    }
+
+    /**
+     * Calcula el SHA-1 sobre el fichero reensamblado a medida que se completa
+     * el prefijo contiguo de trozos, releyéndolos desde la caché de páginas.
+     */
+    private static class ChunkHasher {
+        private final FileChannel channel;
+        private final boolean[] done;
+        private final long size;
+        private final MessageDigest digest;
+        private final ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+        private int next;
+
+        ChunkHasher(FileChannel channel, int chunks, long size) {
+            this.channel = channel;
+            this.done = new boolean[chunks];
+            this.size = size;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("SHA-1 no disponible", e);
+            }
+        }
+
+        synchronized void chunkDone(int index) throws IOException {
+            done[index] = true;
+            while (next < done.length && done[next]) {
+                long position = next * CHUNK_SIZE;
+                long end = Math.min(size, position + CHUNK_SIZE);
+                while (position < end) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("Fin de fichero inesperado al verificar");
+                    }
+                    buffer.flip();
+                    digest.update(buffer);
+                    position += read;
+                }
+                next++;
+            }
+        }
+
+        synchronized boolean isComplete() {
+            return next == done.length;
+        }
+
+        synchronized String hex() {
+            return toHex(digest.digest());
+        }
     }
 
     /**
@@ -102,14 +411,92 @@ public class DownloadUtil {
      */
     public static void downloadAssets(String version, int threadCount, String gameDir)
             throws IOException, InterruptedException {
+        downloadAssets(version, threadCount, gameDir, AssetScope.ALL);
+    }
+
+    /**
+     * Descarga solo una parte de los assets. Con CRITICAL el juego ya puede
+     * lanzarse; el resto se completa con DEFERRED, normalmente mediante
+     * {@link #downloadDeferredAssetsInBackground}.
+     */
+    public static void downloadAssets(String version, int threadCount, String gameDir, AssetScope scope)
+            throws IOException, InterruptedException {
+        try (var _ = StoreLock.shared(gameDir)) {
+            doDownloadAssets(version, threadCount, gameDir, scope, assetMemoryBudget, false);
+        }
+    }
+
+    /**
+     * Descarga assets sin competir con el juego: usa las conexiones indicadas
+     * (el daemon pide 2) y un cuarto del presupuesto de memoria. No hay más
+     * prioridad que esa: BandwidthLimiter no distingue este tráfico del resto.
+     *
+     * El lock compartido del almacén se toma por lotes de
+     * {@value #BACKGROUND_BATCH_SIZE} objetos, así un gc en espera entra entre
+     * dos lotes en lugar de bloquear (el lock es justo) todas las instalaciones
+     * posteriores hasta que acabe la descarga.
+     */
+    public static void downloadAssetsInBackground(String version, int threadCount, String gameDir, AssetScope scope)
+            throws IOException, InterruptedException {
+        doDownloadAssets(version, threadCount, gameDir, scope, assetMemoryBudget / 4, true);
+    }
+
+    /**
+     * Ejecuta {@link #downloadAssetsInBackground} con los assets diferidos en un
+     * hilo propio. Su prioridad mínima es solo una pista que HotSpot ignora en Linux.
+     */
+    public static CompletableFuture<Void> downloadDeferredAssetsInBackground(String version, int threadCount,
+                                                                           String gameDir) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                downloadAssetsInBackground(version, threadCount, gameDir, AssetScope.DEFERRED);
+                future.complete(null);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "⚠️ Error descargando los assets diferidos de " + version, e);
+                future.completeExceptionally(e);
+            } catch (InterruptedException e) {
+                future.completeExceptionally(e);
+            }
+        }, "deferred-assets-" + version);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return future;
+    }
+
+    /**
+     * Sonidos y música: el juego los abre al reproducirlos y un fichero ausente
+     * solo deja ese sonido en silencio. sounds.json sí es crítico.
+     */
+    static boolean isDeferredAsset(String name) {
+        return name.startsWith("minecraft/sounds/") || name.startsWith("minecraft/music/");
+    }
+
+    /**
+     * Con lockPerBatch cada lote toma su propio lock compartido; si no, el
+     * llamador ya tiene el almacén bloqueado y todo va en un único lote.
+     */
+    private static void doDownloadAssets(String version, int threadCount, String gameDir, AssetScope scope,
+                                         long memoryBudget, boolean lockPerBatch)
+            throws IOException, InterruptedException {
         JsonObject assetIndex = HttpUtils.getAssetIndex(version);
         if (assetIndex == null || assetIndex.has("Error")) {
             LOGGER.severe("❌ Error obteniendo asset index para versión " + version);
             return;
         }
+
+        // Los índices legacy se distribuyen por nombre al final: no admiten descarga parcial
+        if (scope != AssetScope.ALL && AssetLayout.needsLayout(assetIndex)) {
+            if (scope == AssetScope.DEFERRED) {
+                return;
+            }
+            LOGGER.info("ℹ️ El índice de assets de " + version + " es legacy, se descarga completo");
+            scope = AssetScope.ALL;
+        }
         
         JsonObject objects = assetIndex.getAsJsonObject("objects");
-        String urlBase = "https://resources.download.minecraft.net/";
+        String urlBase = resourcesBaseUrl;
 
         // 1) Contruir path absoluto
         Path basePath = Paths.get(gameDir, "shared", "assets", "objects")
@@ -119,62 +506,78 @@ public class DownloadUtil {
         // 2) Asegurar existencia del directorio
         Files.createDirectories(basePath);
         
-        // Contador para llevar registro de los archivos
-        final AtomicInteger totalFiles = new AtomicInteger(objects.size());
-        final AtomicInteger successCount = new AtomicInteger(0);
-        final AtomicInteger failCount = new AtomicInteger(0);
-        
-        LOGGER.info("⬇️ Descargando " + totalFiles.get() + " assets para versión " + version);
-
-        // 3) Creamos un ExecutorService y lo cerramos con try-with-resources
-        try (CloseableExecutorService ces =
-                     new CloseableExecutorService(
-                             Executors.newFixedThreadPool(threadCount))) {
+        List<Map.Entry<String, JsonElement>> selected = new ArrayList<>();
+        long deferredBytes = 0;
+        for (Map.Entry<String, JsonElement> entry : objects.entrySet()) {
+            boolean deferred = isDeferredAsset(entry.getKey());
+            if (deferred) {
+                deferredBytes += entry.getValue().getAsJsonObject().get("size").getAsLong();
+            }
+            if (scope == AssetScope.ALL || deferred == (scope == AssetScope.DEFERRED)) {
+                selected.add(entry);
+            }
+        }
 
-            ExecutorService executor = ces.get();
+        int totalFiles = selected.size();
+        int present = 0;
+        int downloaded = 0;
+        int failed = 0;
+        
+        LOGGER.info("⬇️ Descargando " + totalFiles + " assets para versión " + version
+                + (scope == AssetScope.ALL ? "" : " (" + scope + ", " + (objects.size() - totalFiles)
+                + " aparte; " + (deferredBytes >> 20) + " MB diferibles)"));
 
-            for (Map.Entry<String, JsonElement> entry : objects.entrySet()) {
-                String assetName = entry.getKey();
-                JsonObject asset = entry.getValue().getAsJsonObject();
-                String hash = asset.get("hash").getAsString();
-                long size = asset.get("size").getAsLong();
-                
-                String prefix = hash.substring(0, 2);
-                Path folder = basePath.resolve(prefix);
-                Path dest = folder.resolve(hash);
-                String fileUrl = urlBase + prefix + "/" + hash;
+        // 3) Red, verificación y escritura en etapas con colas acotadas y memoria limitada
+        int batchSize = lockPerBatch ? BACKGROUND_BATCH_SIZE : Math.max(1, totalFiles);
+        for (int from = 0; from < totalFiles; from += batchSize) {
+            List<Map.Entry<String, JsonElement>> batch = selected.subList(from, Math.min(totalFiles, from + batchSize));
+            // Sin lockPerBatch el recurso es null: el llamador ya tiene el almacén bloqueado
+            try (var _ = lockPerBatch ? StoreLock.shared(gameDir) : null;
+                 AssetPipeline pipeline = new AssetPipeline(threadCount, memoryBudget, batch.size())) {
+                for (Map.Entry<String, JsonElement> entry : batch) {
+                    JsonObject asset = entry.getValue().getAsJsonObject();
+                    String hash = asset.get("hash").getAsString();
+                    long size = asset.get("size").getAsLong();
 
-                // Carpeta del prefix
-                Files.createDirectories(folder);
-                
-                // Verificar si ya existe y tiene el tamaño correcto
-                if (Files.exists(dest) && Files.size(dest) == size) {
-                    successCount.incrementAndGet();
-                    continue;
-                }
+                    String prefix = hash.substring(0, 2);
+                    Path dest = basePath.resolve(prefix).resolve(hash);
 
-                executor.submit(() -> {
-                    try {
-                        downloadFile(fileUrl, dest.toString(), hash);
-                        LOGGER.info("✅ Asset descargado y verificado: " + assetName + " (" + successCount.incrementAndGet() + "/" + totalFiles.get() + ")");
-                    } catch (IOException | InterruptedException e) {
-                        LOGGER.log(Level.SEVERE,
-                                "❌ Error descargando asset " + assetName + ": " + e.getMessage(), e);
-                        failCount.incrementAndGet();
-                        Thread.currentThread().interrupt();
+                    // Verificar si ya existe y tiene el tamaño correcto
+                    if (Files.exists(dest) && Files.size(dest) == size) {
+                        present++;
+                        continue;
                     }
-                });
+                    pipeline.submit(new AssetPipeline.Job(entry.getKey(), hash, size, urlBase + prefix + "/" + hash, dest));
+                }
+                AssetPipeline.Result result = pipeline.finish();
+                downloaded += result.downloaded();
+                failed += result.failed();
             }
         }
 
         LOGGER.info("✅ Proceso de descarga de assets completado: " + 
-                successCount.get() + " éxitos, " + 
-                failCount.get() + " fallos, de un total de " + 
-                totalFiles.get() + " archivos");
+                (present + downloaded) + " éxitos, " + 
+                failed + " fallos, de un total de " + 
+                totalFiles + " archivos");
+
+        // Versiones antiguas: distribuir los assets por nombre enlazando los objetos
+        if (scope == AssetScope.ALL && AssetLayout.needsLayout(assetIndex)) {
+            String assetIndexId = HttpUtils.getVersionData(version).getAsJsonObject("assetIndex").get("id").getAsString();
+            try (var _ = lockPerBatch ? StoreLock.shared(gameDir) : null) {
+                AssetLayout.apply(assetIndex, assetIndexId, gameDir);
+            }
+        }
     }
 
     public static void downloadClient(String version, int threadCount, String gameDir)
             throws IOException, InterruptedException {
+        try (var _ = StoreLock.shared(gameDir)) {
+            doDownloadClient(version, threadCount, gameDir);
+        }
+    }
+
+    private static void doDownloadClient(String version, int threadCount, String gameDir)
+            throws IOException, InterruptedException {
 
         // 1) Extraer el objeto "client" de downloads
         JsonObject versionData = HttpUtils.getVersionData(version);
@@ -222,20 +625,24 @@ public class DownloadUtil {
             
             LOGGER.info("⬇️ Descargando client.jar para versión " + version);
             
-            executor.submit(() -> {
-                try {
-                    downloadFile(url, dest.toString(), sha1);
-                    LOGGER.info("✅ client.jar descargado y verificado: " + dest);
-                } catch (IOException | InterruptedException e) {
-                    LOGGER.log(Level.SEVERE,
-                            "❌ Error descargando client.jar: " + e.getMessage(), e);
-                    Thread.currentThread().interrupt();
-                }
-            });
+            // El jar del cliente es el fichero más grande: se reparte en rangos por el pool
+            try {
+                downloadFileChunked(url, dest, sha1, size, executor);
+                LOGGER.info("✅ client.jar descargado y verificado: " + dest);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE,
+                        "❌ Error descargando client.jar: " + e.getMessage(), e);
+            }
         }
     }
 
     public static void downloadLibraries(String version, int threadCount, String gameDir) throws IOException {
+        try (var _ = StoreLock.shared(gameDir)) {
+            doDownloadLibraries(version, threadCount, gameDir);
+        }
+    }
+
+    private static void doDownloadLibraries(String version, int threadCount, String gameDir) throws IOException {
         JsonObject versionData = HttpUtils.getVersionData(version);
         if (versionData == null || versionData.has("Error")) {
             LOGGER.severe("❌ Error obteniendo datos de versión para " + version);
@@ -354,6 +761,12 @@ public class DownloadUtil {
     }
 
     public static void downloadNatives(String version, int threadCount, String gameDir) throws IOException {
+        try (var _ = StoreLock.shared(gameDir)) {
+            doDownloadNatives(version, threadCount, gameDir);
+        }
+    }
+
+    private static void doDownloadNatives(String version, int threadCount, String gameDir) throws IOException {
         JsonObject versionData = HttpUtils.getVersionData(version);
         
         // Verificar si hay error en la respuesta
@@ -514,8 +927,8 @@ public class DownloadUtil {
         Path filePath = Paths.get(gameDir, "shared", "versions", version, version + ".json")
                 .toAbsolutePath()
                 .normalize();
-        try {
-            downloadFile(Version.get("url").getAsString(), filePath.toString());
+        try (var _ = StoreLock.shared(gameDir)) {
+            downloadFile(Version.get("url").getAsString(), filePath.toString(), null, true);
         } catch (IOException e) {
             throw new RuntimeException(e);
         } catch (InterruptedException e) {
@@ -538,9 +951,9 @@ public class DownloadUtil {
                 .toAbsolutePath()
                 .normalize();
                 
-        try {
+        try (var _ = StoreLock.shared(gameDir)) {
             Files.createDirectories(filePath.getParent());
-            downloadFile(assetIndexUrl, filePath.toString());
+            downloadFile(assetIndexUrl, filePath.toString(), null, true);
             LOGGER.info("✅ Índice de assets descargado: " + filePath);
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "❌ Error descargando índice de assets", e);
@@ -644,7 +1057,7 @@ public class DownloadUtil {
     }
 
     // Añadir método para calcular hash SHA-1
-    private static String calculateSHA1(Path filePath) throws IOException {
+    static String calculateSHA1(Path filePath) throws IOException {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-1");
             byte[] buffer = new byte[8192];
@@ -656,23 +1069,26 @@ public class DownloadUtil {
                 }
             }
             
-            byte[] sha1sum = digest.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : sha1sum) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return toHex(digest.digest());
         } catch (NoSuchAlgorithmException e) {
             LOGGER.severe("SHA-1 algoritmo no disponible: " + e.getMessage());
             throw new RuntimeException("SHA-1 no disponible", e);
         }
     }
 
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
     /**
      * Wrapper AutoCloseable para gestionar correctamente el shutdown
      * de un ExecutorService.
      */
-    private static class CloseableExecutorService implements AutoCloseable {
+    static class CloseableExecutorService implements AutoCloseable {
         private final ExecutorService executor;
 
         CloseableExecutorService(ExecutorService executor) {
@@ -0,0 +1,601 @@
+package me.cubicmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Instalación de Forge (y NeoForge) a partir del instalador oficial sin
+ * ejecutar su interfaz: se extraen version.json e install_profile.json, se
+ * descargan las bibliotecas y se ejecutan los processors del perfil.
+ *
+ * Los processors independientes se ejecutan en paralelo, cada uno en una JVM
+ * hija. Un processor se omite si sus salidas declaradas ya existen con el
+ * SHA-1 esperado, y sus salidas se guardan en shared/forge-cache indexadas por
+ * el hash de sus entradas, de modo que reinstalar o preparar otra instancia con
+ * el mismo Forge solo enlaza ficheros. {@link StoreGarbageCollector} elimina
+ * las entradas que ya no enlaza ninguna biblioteca instalada.
+ */
+public class ForgeInstaller {
+    private static final Logger LOGGER = Logger.getLogger(ForgeInstaller.class.getName());
+
+    private static final String FORGE_MAVEN = "https://maven.minecraftforge.net/";
+
+    // Opciones cuyo argumento es un fichero que escribe el processor
+    private static final Set<String> OUTPUT_FLAGS = Set.of("--output", "--out", "--out-jar", "--slim", "--extra");
+
+    /**
+     * Processor del perfil ya resuelto: comando, ficheros que lee y ficheros que produce.
+     */
+    private record Processor(int index, String jar, List<String> command, Map<Path, String> outputs,
+                             Set<Path> reads, Set<Path> produces, Path log) {
+    }
+
+    /**
+     * Identificador de la versión instalada, el mismo que busca {@link Launcher}.
+     */
+    public static String getVersionId(String mcVersion, String forgeVersion) {
+        return mcVersion + "-forge-" + forgeVersion;
+    }
+
+    public static String getInstallerUrl(String mcVersion, String forgeVersion) {
+        String full = mcVersion + "-" + forgeVersion;
+        return FORGE_MAVEN + "net/minecraftforge/forge/" + full + "/forge-" + full + "-installer.jar";
+    }
+
+    /**
+     * Instala Forge para la versión de Minecraft dada. Si javaPath es null, los
+     * processors se ejecutan con el runtime gestionado de esa versión.
+     */
+    public static void installForge(String mcVersion, String forgeVersion, int threadCount, String gameDir,
+                                    String javaPath) throws IOException, InterruptedException {
+        install(getInstallerUrl(mcVersion, forgeVersion), getVersionId(mcVersion, forgeVersion), mcVersion,
+                threadCount, gameDir, javaPath);
+    }
+
+    /**
+     * Instala desde cualquier instalador con el formato de Forge (por ejemplo
+     * NeoForge) bajo el identificador de versión indicado.
+     */
+    public static void install(String installerUrl, String versionId, String mcVersion, int threadCount,
+                               String gameDir, String javaPath) throws IOException, InterruptedException {
+        try (var _ = StoreLock.shared(gameDir)) {
+            doInstall(installerUrl, versionId, mcVersion, threadCount, gameDir, javaPath);
+        }
+    }
+
+    private static void doInstall(String installerUrl, String versionId, String mcVersion, int threadCount,
+                                  String gameDir, String javaPath) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        Path shared = Paths.get(gameDir, "shared").toAbsolutePath().normalize();
+        Path librariesDir = shared.resolve("libraries");
+        Path versionFolder = shared.resolve("versions").resolve(versionId);
+        Path installer = versionFolder.resolve(versionId + "-installer.jar");
+        Files.createDirectories(versionFolder);
+
+        // La versión vanilla aporta el client.jar que transforman los processors
+        DownloadUtil.downloadVersionData(mcVersion, gameDir);
+        DownloadUtil.downloadClient(mcVersion, threadCount, gameDir);
+        Path clientJar = shared.resolve("versions").resolve(mcVersion).resolve(mcVersion + ".jar");
+
+        if (!Files.exists(installer)) {
+            LOGGER.info("⬇️ Descargando instalador de " + versionId);
+            DownloadUtil.downloadFile(installerUrl, installer.toString(), null);
+        }
+
+        Path dataDir = Files.createTempDirectory("neutron-forge-");
+        try (ZipFile zip = new ZipFile(installer.toFile());
+             DownloadUtil.CloseableExecutorService ces =
+                     new DownloadUtil.CloseableExecutorService(Executors.newFixedThreadPool(threadCount))) {
+            JsonObject profile = readJson(zip, "install_profile.json");
+            if (profile == null) {
+                throw new IOException("El instalador no contiene install_profile.json: " + installer);
+            }
+
+            JsonObject versionJson = readJson(zip, "version.json");
+            if (versionJson == null) {
+                // Instaladores antiguos (1.12 y anteriores): el perfil incluye la versión y el jar universal
+                installLegacy(zip, profile, versionId, versionFolder, librariesDir);
+                return;
+            }
+            versionJson.addProperty("id", versionId);
+            // Se conserva el perfil para que la recolección de basura mantenga vivas sus bibliotecas
+            Files.writeString(versionFolder.resolve("install_profile.json"), profile.toString(), StandardCharsets.UTF_8);
+
+            // Ficheros que existen antes de ejecutar ningún processor
+            Set<Path> staticInputs = new HashSet<>(List.of(clientJar, installer));
+            List<Future<?>> downloads = new ArrayList<>();
+            submitLibraries(versionJson, zip, librariesDir, ces, downloads, staticInputs);
+            submitLibraries(profile, zip, librariesDir, ces, downloads, staticInputs);
+            waitAll(downloads);
+            LOGGER.info("📚 Bibliotecas de " + versionId + " listas: " + downloads.size());
+
+            if (!profile.has("processors") || profile.getAsJsonArray("processors").isEmpty()) {
+                writeVersionJson(versionFolder, versionId, versionJson);
+                return;
+            }
+
+            if (javaPath == null || javaPath.isBlank()) {
+                JsonObject vanilla = JsonParser.parseString(Files.readString(
+                        shared.resolve("versions").resolve(mcVersion).resolve(mcVersion + ".json"))).getAsJsonObject();
+                javaPath = JavaRuntimeManager.resolveJava(vanilla, null, gameDir, threadCount);
+            }
+
+            Map<String, String> data = resolveData(profile, zip, dataDir, librariesDir, staticInputs);
+            data.put("SIDE", "client");
+            data.put("MINECRAFT_JAR", clientJar.toString());
+            data.put("MINECRAFT_VERSION", mcVersion);
+            data.put("ROOT", shared.toString());
+            data.put("INSTALLER", installer.toString());
+            data.put("LIBRARY_DIR", librariesDir.toString());
+
+            List<Processor> processors = planProcessors(profile, data, librariesDir, staticInputs, javaPath,
+                    versionFolder.resolve("processors"));
+            runProcessors(processors, shared.resolve("forge-cache"), ces);
+            writeProducedLibraries(processors, librariesDir, versionFolder);
+            writeVersionJson(versionFolder, versionId, versionJson);
+        } finally {
+            deleteTree(dataDir);
+        }
+        LOGGER.info("✅ " + versionId + " instalado en " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private static void installLegacy(ZipFile zip, JsonObject profile, String versionId, Path versionFolder,
+                                      Path librariesDir) throws IOException {
+        JsonObject versionInfo = profile.getAsJsonObject("versionInfo");
+        JsonObject install = profile.getAsJsonObject("install");
+        if (versionInfo == null || install == null) {
+            throw new IOException("Formato de instalador no reconocido");
+        }
+        versionInfo.addProperty("id", versionId);
+        Path universal = librariesDir.resolve(mavenPath(install.get("path").getAsString())).normalize();
+        extract(zip, install.get("filePath").getAsString(), universal);
+        LOGGER.info("📦 Instalador antiguo: jar universal extraído en " + universal);
+        writeVersionJson(versionFolder, versionId, versionInfo);
+    }
+
+    /**
+     * Último paso de la instalación: {@link Launcher} da Forge por instalado en
+     * cuanto existe este fichero, así que solo aparece, de forma atómica, cuando
+     * las bibliotecas y los processors han terminado bien.
+     */
+    private static void writeVersionJson(Path versionFolder, String versionId, JsonObject versionJson)
+            throws IOException {
+        Path file = versionFolder.resolve(versionId + ".json");
+        Path temp = file.resolveSibling(file.getFileName() + ".part");
+        Files.writeString(temp, versionJson.toString(), StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void submitLibraries(JsonObject descriptor, ZipFile zip, Path librariesDir,
+                                        DownloadUtil.CloseableExecutorService ces, List<Future<?>> downloads,
+                                        Set<Path> staticInputs) {
+        if (!descriptor.has("libraries")) {
+            return;
+        }
+        for (JsonElement element : descriptor.getAsJsonArray("libraries")) {
+            JsonObject lib = element.getAsJsonObject();
+            if (!lib.has("downloads") || !lib.getAsJsonObject("downloads").has("artifact")) {
+                continue;
+            }
+            JsonObject artifact = lib.getAsJsonObject("downloads").getAsJsonObject("artifact");
+            String path = artifact.get("path").getAsString();
+            String url = artifact.has("url") ? artifact.get("url").getAsString() : "";
+            String sha1 = artifact.has("sha1") ? artifact.get("sha1").getAsString() : null;
+            Path dest = librariesDir.resolve(path).normalize();
+            if (url.isEmpty() && zip.getEntry("maven/" + path) == null) {
+                // Sin URL ni copia en el instalador: lo generan los processors (p. ej. el cliente parcheado)
+                continue;
+            }
+            staticInputs.add(dest);
+
+            downloads.add(ces.get().submit(() -> {
+                if (Files.exists(dest) && (sha1 == null || sha1.equalsIgnoreCase(DownloadUtil.calculateSHA1(dest)))) {
+                    return null;
+                }
+                if (url.isEmpty()) {
+                    // Artefactos propios del loader que vienen dentro del instalador
+                    extract(zip, "maven/" + path, dest);
+                } else {
+                    DownloadUtil.downloadFile(url, dest.toString(), sha1);
+                }
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Resuelve la sección "data" del perfil para el lado cliente: coordenadas
+     * Maven a rutas de bibliotecas, literales entre comillas simples y ficheros
+     * del instalador (que se extraen a un directorio temporal).
+     */
+    private static Map<String, String> resolveData(JsonObject profile, ZipFile zip, Path dataDir, Path librariesDir,
+                                                   Set<Path> staticInputs) throws IOException {
+        Map<String, String> data = new HashMap<>();
+        if (!profile.has("data")) {
+            return data;
+        }
+        for (Map.Entry<String, JsonElement> entry : profile.getAsJsonObject("data").entrySet()) {
+            JsonObject sides = entry.getValue().getAsJsonObject();
+            if (!sides.has("client")) {
+                continue;
+            }
+            String value = sides.get("client").getAsString();
+            if (value.startsWith("[") && value.endsWith("]")) {
+                data.put(entry.getKey(), librariesDir.resolve(mavenPath(value.substring(1, value.length() - 1))).toString());
+            } else if (value.startsWith("'") && value.endsWith("'")) {
+                data.put(entry.getKey(), value.substring(1, value.length() - 1));
+            } else if (value.startsWith("/")) {
+                Path dest = dataDir.resolve(value.substring(1)).normalize();
+                extract(zip, value.substring(1), dest);
+                staticInputs.add(dest);
+                data.put(entry.getKey(), dest.toString());
+            } else {
+                data.put(entry.getKey(), value);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Resuelve los processors del lado cliente. Un fichero que no es una entrada
+     * estática (biblioteca, dato del instalador, client.jar) lo produce el primer
+     * processor que lo menciona, o el que lo declara como salida; el resto lo lee.
+     * La clasificación no depende de lo que ya haya en disco.
+     */
+    private static List<Processor> planProcessors(JsonObject profile, Map<String, String> data, Path librariesDir,
+                                                  Set<Path> staticInputs, String javaPath, Path logDir)
+            throws IOException {
+        List<Processor> processors = new ArrayList<>();
+        Set<Path> claimed = new HashSet<>();
+        JsonArray array = profile.getAsJsonArray("processors");
+        for (int i = 0; i < array.size(); i++) {
+            JsonObject proc = array.get(i).getAsJsonObject();
+            if (proc.has("sides")) {
+                boolean client = false;
+                for (JsonElement side : proc.getAsJsonArray("sides")) {
+                    client |= side.getAsString().equals("client");
+                }
+                if (!client) {
+                    continue;
+                }
+            }
+
+            String jarCoords = proc.get("jar").getAsString();
+            Path jar = librariesDir.resolve(mavenPath(jarCoords));
+            StringBuilder classpath = new StringBuilder(jar.toString());
+            if (proc.has("classpath")) {
+                for (JsonElement entry : proc.getAsJsonArray("classpath")) {
+                    classpath.append(File.pathSeparator).append(librariesDir.resolve(mavenPath(entry.getAsString())));
+                }
+            }
+
+            String mainClass;
+            try (JarFile jarFile = new JarFile(jar.toFile())) {
+                mainClass = jarFile.getManifest().getMainAttributes().getValue("Main-Class");
+            }
+            if (mainClass == null) {
+                throw new IOException("El processor " + jarCoords + " no declara Main-Class");
+            }
+
+            List<String> command = new ArrayList<>(List.of(javaPath, "-cp", classpath.toString(), mainClass));
+            Set<Path> reads = new LinkedHashSet<>();
+            Set<Path> produces = new LinkedHashSet<>();
+            String previous = null;
+            for (JsonElement element : proc.getAsJsonArray("args")) {
+                String arg = resolveArg(element.getAsString(), data, librariesDir);
+                command.add(arg);
+                if (!arg.startsWith("-") && arg.contains(File.separator)) {
+                    Path path = Paths.get(arg).toAbsolutePath().normalize();
+                    if ((previous != null && OUTPUT_FLAGS.contains(previous))
+                            || (!staticInputs.contains(path) && claimed.add(path))) {
+                        produces.add(path);
+                        claimed.add(path);
+                    } else {
+                        reads.add(path);
+                    }
+                }
+                previous = arg;
+            }
+
+            Map<Path, String> outputs = new HashMap<>();
+            if (proc.has("outputs")) {
+                for (Map.Entry<String, JsonElement> output : proc.getAsJsonObject("outputs").entrySet()) {
+                    Path path = Paths.get(resolveArg(output.getKey(), data, librariesDir)).toAbsolutePath().normalize();
+                    outputs.put(path, resolveArg(output.getValue().getAsString(), data, librariesDir));
+                    produces.add(path);
+                    claimed.add(path);
+                    reads.remove(path);
+                }
+            }
+
+            processors.add(new Processor(processors.size(), jarCoords, command, outputs, reads, produces,
+                    logDir.resolve(i + ".log")));
+        }
+        return processors;
+    }
+
+    private static String resolveArg(String arg, Map<String, String> data, Path librariesDir) {
+        if (arg.startsWith("{") && arg.endsWith("}")) {
+            String value = data.get(arg.substring(1, arg.length() - 1));
+            return value != null ? value : arg;
+        }
+        if (arg.startsWith("[") && arg.endsWith("]")) {
+            return librariesDir.resolve(mavenPath(arg.substring(1, arg.length() - 1))).toString();
+        }
+        if (arg.startsWith("'") && arg.endsWith("'")) {
+            return arg.substring(1, arg.length() - 1);
+        }
+        return arg;
+    }
+
+    /**
+     * Ejecuta los processors respetando sus dependencias: uno depende de otro
+     * anterior si lee algo que aquel produce o produce algo que aquel usa.
+     */
+    private static void runProcessors(List<Processor> processors, Path cacheDir,
+                                      DownloadUtil.CloseableExecutorService ces)
+            throws IOException, InterruptedException {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Processor current : processors) {
+            List<CompletableFuture<Void>> deps = new ArrayList<>();
+            for (Processor earlier : processors.subList(0, current.index())) {
+                if (intersects(current.reads(), earlier.produces()) || intersects(current.produces(), earlier.produces())
+                        || intersects(current.produces(), earlier.reads())) {
+                    deps.add(futures.get(earlier.index()));
+                }
+            }
+            futures.add(CompletableFuture.allOf(deps.toArray(new CompletableFuture<?>[0]))
+                    .thenRunAsync(() -> {
+                        try {
+                            runProcessor(current, cacheDir);
+                        } catch (IOException | InterruptedException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, ces.get()));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Error ejecutando los processors", cause);
+        }
+    }
+
+    private static void runProcessor(Processor processor, Path cacheDir) throws IOException, InterruptedException {
+        if (!processor.outputs().isEmpty() && outputsVerify(processor.outputs())) {
+            LOGGER.info("✅ Processor " + processor.index() + " (" + processor.jar() + "): salidas ya verificadas");
+            return;
+        }
+
+        String key = cacheKey(processor);
+        Path entry = cacheDir.resolve(key.substring(0, 2)).resolve(key);
+        if (restoreFromCache(processor, entry)) {
+            LOGGER.info("♻️ Processor " + processor.index() + " (" + processor.jar() + "): salidas desde caché");
+            return;
+        }
+
+        // Las salidas pueden ser enlaces a la caché: se borran para no escribir a través de ellos
+        for (Path output : processor.produces()) {
+            Files.deleteIfExists(output);
+        }
+
+        long start = System.currentTimeMillis();
+        Files.createDirectories(processor.log().getParent());
+        Process process = new ProcessBuilder(processor.command())
+                .redirectErrorStream(true)
+                .redirectOutput(processor.log().toFile())
+                .start();
+        int exit = process.waitFor();
+        if (exit != 0) {
+            throw new IOException("El processor " + processor.jar() + " terminó con código " + exit
+                    + ", ver " + processor.log());
+        }
+        for (Map.Entry<Path, String> output : processor.outputs().entrySet()) {
+            String actual = Files.exists(output.getKey()) ? DownloadUtil.calculateSHA1(output.getKey()) : "ausente";
+            if (!actual.equalsIgnoreCase(output.getValue())) {
+                throw new IOException("Salida incorrecta del processor " + processor.jar() + ": " + output.getKey()
+                        + " (esperado " + output.getValue() + ", actual " + actual + ")");
+            }
+        }
+        LOGGER.info("⚙️ Processor " + processor.index() + " (" + processor.jar() + ") ejecutado en "
+                + (System.currentTimeMillis() - start) + " ms");
+        storeInCache(processor, entry);
+    }
+
+    private static boolean outputsVerify(Map<Path, String> outputs) throws IOException {
+        for (Map.Entry<Path, String> output : outputs.entrySet()) {
+            if (!Files.exists(output.getKey()) || !output.getValue().equalsIgnoreCase(DownloadUtil.calculateSHA1(output.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clave de caché: el comando con cada fichero de entrada sustituido por su
+     * SHA-1, de modo que no depende de rutas temporales.
+     */
+    private static String cacheKey(Processor processor) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            // El ejecutable de Java no forma parte de la clave
+            for (String arg : processor.command().subList(1, processor.command().size())) {
+                Path path = arg.contains(File.separator) && !arg.contains(File.pathSeparator)
+                        ? Paths.get(arg).toAbsolutePath().normalize() : null;
+                if (path != null && processor.reads().contains(path) && Files.isRegularFile(path)) {
+                    arg = "sha1:" + DownloadUtil.calculateSHA1(path);
+                }
+                digest.update(arg.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return DownloadUtil.toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static boolean restoreFromCache(Processor processor, Path entry) throws IOException {
+        if (!Files.isDirectory(entry)) {
+            return false;
+        }
+        List<Path> produced = new ArrayList<>(processor.produces());
+        for (int i = 0; i < produced.size(); i++) {
+            Path cached = entry.resolve(String.valueOf(i));
+            if (Files.exists(cached)) {
+                LinkUtil.linkOrCopy(cached, produced.get(i));
+            }
+        }
+        return processor.outputs().isEmpty() || outputsVerify(processor.outputs());
+    }
+
+    private static void storeInCache(Processor processor, Path entry) throws IOException {
+        Path temp = entry.resolveSibling(entry.getFileName() + ".part");
+        deleteTree(temp);
+        Files.createDirectories(temp);
+        List<Path> produced = new ArrayList<>(processor.produces());
+        for (int i = 0; i < produced.size(); i++) {
+            if (Files.isRegularFile(produced.get(i))) {
+                LinkUtil.linkOrCopy(produced.get(i), temp.resolve(String.valueOf(i)));
+            }
+        }
+        try {
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Otra instalación guardó la misma entrada a la vez
+            deleteTree(temp);
+        }
+    }
+
+    /**
+     * Registra como bibliotecas las salidas de los processors que quedan en
+     * shared/libraries, para que la recolección de basura no las elimine.
+     */
+    private static void writeProducedLibraries(List<Processor> processors, Path librariesDir, Path versionFolder)
+            throws IOException {
+        JsonArray libraries = new JsonArray();
+        for (Processor processor : processors) {
+            for (Path path : processor.produces()) {
+                if (path.startsWith(librariesDir) && Files.isRegularFile(path)) {
+                    JsonObject artifact = new JsonObject();
+                    artifact.addProperty("path", librariesDir.relativize(path).toString().replace(File.separatorChar, '/'));
+                    JsonObject downloads = new JsonObject();
+                    downloads.add("artifact", artifact);
+                    JsonObject lib = new JsonObject();
+                    lib.add("downloads", downloads);
+                    libraries.add(lib);
+                }
+            }
+        }
+        JsonObject descriptor = new JsonObject();
+        descriptor.add("libraries", libraries);
+        Files.writeString(versionFolder.resolve("processed.json"), descriptor.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Convierte "grupo:artefacto:versión[:clasificador][@extensión]" en su ruta Maven relativa.
+     */
+    static String mavenPath(String coords) {
+        return MavenCoordinate.parse(coords).path();
+    }
+
+    private static JsonObject readJson(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return JsonParser.parseString(new String(in.readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+        }
+    }
+
+    private static void extract(ZipFile zip, String name, Path dest) throws IOException {
+        if (name.contains("..")) {
+            throw new IOException("Ruta no válida en el instalador: " + name);
+        }
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            throw new IOException("Entrada no encontrada en el instalador: " + name);
+        }
+        Files.createDirectories(dest.getParent());
+        Path temp = dest.resolveSibling(dest.getFileName() + ".part");
+        try (InputStream in = zip.getInputStream(entry)) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(temp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean intersects(Set<Path> a, Set<Path> b) {
+        for (Path path : a) {
+            if (b.contains(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void waitAll(List<Future<?>> futures) throws IOException, InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private static void deleteTree(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "No se pudo borrar " + path, e);
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No se pudo borrar " + dir, e);
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package me.cubicmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Telemetría de la JVM del juego: el log de GC (-Xlog:gc o -Xloggc en Java 8)
+ * da las pausas, el heap tras cada colección y el ritmo de asignación, y
+ * /proc/&lt;pid&gt;/status la memoria residente (solo Linux). Cada partida se
+ * resume en gameDir/.neutron/telemetry.json y con las últimas se recomienda
+ * el heap y el perfil de {@link JvmTuning} para el siguiente lanzamiento.
+ */
+public class GameTelemetry {
+
+    private static final Logger LOGGER = LogManager.getLogger(GameTelemetry.class);
+
+    private static final int MAX_SESSIONS = 10;
+    private static final long SAMPLE_MILLIS = 5_000;
+    // Partidas más cortas no llegan a cargar un mundo y no dicen nada del heap necesario
+    private static final long MIN_SESSION_SECONDS = 60;
+    // G1 necesita margen sobre el heap vivo para no encadenar colecciones mixtas
+    private static final int HEAP_HEADROOM = 3;
+    private static final long MIN_HEAP = 1L << 30;
+    private static final long HEAP_STEP = 512L << 20;
+    private static final double MAX_PAUSE_P99_MILLIS = 100;
+
+    private static final DateTimeFormatter FILE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    // "[12.345s] GC(7) Pause Young (Normal) (G1 Evacuation Pause) 812M->203M(2048M) 9.876ms"
+    private static final Pattern UNIFIED_UPTIME = Pattern.compile("^\\[(\\d+[.,]\\d+)s]");
+    private static final Pattern UNIFIED_HEAP = Pattern.compile(
+            "(\\d+)([KMG])(?:\\(\\d+%\\))?->(\\d+)([KMG])(?:\\(\\d+%\\))?(?:\\((\\d+)([KMG])\\))?");
+    private static final Pattern UNIFIED_PAUSE = Pattern.compile("Pause .* (\\d+[.,]\\d+)ms$");
+    // "12.345: [GC (Allocation Failure)  831488K->207872K(2097152K), 0.0098760 secs]"
+    private static final Pattern LEGACY_EVENT = Pattern.compile(
+            "^(\\d+[.,]\\d+): \\[(?:Full )?GC.*?(\\d+)K->(\\d+)K\\((\\d+)K\\), (\\d+[.,]\\d+) secs]");
+
+    /**
+     * Resumen de una partida. Memorias en bytes, pausas en milisegundos.
+     */
+    public record Session(String started, long seconds, int exitCode, long maxHeap, long heapAfterGcMax,
+                          long committedMax, double allocationMbPerSecond, int collections, double pauseP50,
+                          double pauseP99, double pauseMax, double gcPercent, long rssPeak, long rssAverage) {
+    }
+
+    /**
+     * Ajustes recomendados. profile es null si el perfil actual es adecuado.
+     */
+    public record Recommendation(String minRam, String maxRam, JvmTuning.Profile profile, String reason) {
+    }
+
+    private final String gameDir;
+    private final JvmTuning.Host host;
+    private final Path gcLog;
+    private final boolean legacyLog;
+    private final List<Long> rssSamples = Collections.synchronizedList(new ArrayList<>());
+    private final String started = LocalDateTime.now().toString();
+    private final long startNanos = System.nanoTime();
+    private Thread sampler;
+
+    /**
+     * @param host equipo y versión de Java del juego: antes de Java 9 no existe -Xlog
+     */
+    public GameTelemetry(String gameDir, JvmTuning.Host host) {
+        this.gameDir = gameDir;
+        this.host = host;
+        this.legacyLog = host.javaMajor() > 0 && host.javaMajor() < 9;
+        this.gcLog = Paths.get(gameDir, ".neutron", "telemetry",
+                "gc-" + LocalDateTime.now().format(FILE_FORMAT) + ".log").toAbsolutePath();
+    }
+
+    /**
+     * Flags que activan el log de GC del juego.
+     */
+    public List<String> jvmFlags() throws IOException {
+        Files.createDirectories(gcLog.getParent());
+        if (legacyLog) {
+            return List.of("-Xloggc:" + gcLog, "-XX:+PrintGCTimeStamps");
+        }
+        // En -Xlog los dos puntos separan opciones: las rutas de Windows van entre comillas
+        String file = gcLog.toString().contains(":") ? "\"" + gcLog + "\"" : gcLog.toString();
+        return List.of("-Xlog:gc:file=" + file + ":uptime");
+    }
+
+    /**
+     * Empieza a muestrear la memoria residente del proceso del juego.
+     */
+    public void attach(Process process) {
+        Path status = Paths.get("/proc", String.valueOf(process.pid()), "status");
+        if (!Files.isReadable(status)) {
+            LOGGER.debug("Sin /proc en este sistema, la telemetría no incluye la memoria residente");
+            return;
+        }
+        sampler = new Thread(() -> {
+            while (process.isAlive()) {
+                long rss = readRss(status);
+                if (rss > 0) {
+                    rssSamples.add(rss);
+                }
+                try {
+                    Thread.sleep(SAMPLE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "game-telemetry");
+        sampler.setDaemon(true);
+        sampler.setPriority(Thread.MIN_PRIORITY);
+        sampler.start();
+    }
+
+    /**
+     * Resume la partida, la añade al perfil de la instancia y devuelve la recomendación resultante.
+     */
+    public Recommendation finish(int exitCode, String maxRam) {
+        if (sampler != null) {
+            sampler.interrupt();
+        }
+        long seconds = (System.nanoTime() - startNanos) / 1_000_000_000L;
+        Session session;
+        try {
+            session = summarize(Files.exists(gcLog) ? Files.readAllLines(gcLog, StandardCharsets.UTF_8) : List.of(),
+                    legacyLog, started, seconds, exitCode, JvmTuning.parseMemory(maxRam), List.copyOf(rssSamples));
+            Files.deleteIfExists(gcLog);
+        } catch (IOException e) {
+            LOGGER.warn("No se pudo leer el log de GC {}: {}", gcLog, e.getMessage());
+            return null;
+        }
+        LOGGER.info("Telemetría: {} s, heap tras GC hasta {} MB de {} MB, {} MB/s asignados, {} colecciones, "
+                        + "pausa p99 {} ms (máx. {} ms), {}% en GC, RSS máx. {} MB",
+                session.seconds(), session.heapAfterGcMax() >> 20, session.maxHeap() >> 20,
+                String.format(Locale.ROOT, "%.1f", session.allocationMbPerSecond()), session.collections(),
+                String.format(Locale.ROOT, "%.1f", session.pauseP99()),
+                String.format(Locale.ROOT, "%.1f", session.pauseMax()),
+                String.format(Locale.ROOT, "%.2f", session.gcPercent()), session.rssPeak() >> 20);
+
+        List<Session> sessions = new ArrayList<>(sessions(gameDir));
+        sessions.add(session);
+        if (sessions.size() > MAX_SESSIONS) {
+            sessions = new ArrayList<>(sessions.subList(sessions.size() - MAX_SESSIONS, sessions.size()));
+        }
+        Recommendation recommendation = recommend(sessions, host.totalMemory());
+        save(gameDir, sessions, recommendation);
+        if (recommendation != null) {
+            LOGGER.info("Recomendación para el próximo lanzamiento: -Xms{} -Xmx{}{} ({})", recommendation.minRam(),
+                    recommendation.maxRam(), recommendation.profile() != null ? ", perfil " + recommendation.profile() : "",
+                    recommendation.reason());
+        }
+        return recommendation;
+    }
+
+    static Session summarize(List<String> lines, boolean legacy, String started, long seconds, int exitCode,
+                             long maxHeap, List<Long> rss) {
+        List<Double> pauses = new ArrayList<>();
+        long previousAfter = 0;
+        long allocated = 0;
+        long heapAfterMax = 0;
+        long committedMax = 0;
+        double uptime = 0;
+        int collections = 0;
+
+        for (String line : lines) {
+            long before;
+            long after;
+            long committed = 0;
+            Double pause = null;
+            if (legacy) {
+                Matcher event = LEGACY_EVENT.matcher(line);
+                if (!event.find()) {
+                    continue;
+                }
+                uptime = number(event.group(1));
+                before = Long.parseLong(event.group(2)) << 10;
+                after = Long.parseLong(event.group(3)) << 10;
+                committed = Long.parseLong(event.group(4)) << 10;
+                // Sin -XX:+PrintGCDetails cada evento de Java 8 es una pausa
+                pause = number(event.group(5)) * 1000;
+            } else {
+                Matcher time = UNIFIED_UPTIME.matcher(line);
+                if (time.find()) {
+                    uptime = number(time.group(1));
+                }
+                Matcher pauseMatch = UNIFIED_PAUSE.matcher(line);
+                if (pauseMatch.find()) {
+                    pause = number(pauseMatch.group(1));
+                }
+                Matcher heap = UNIFIED_HEAP.matcher(line);
+                if (!heap.find()) {
+                    // Pausas sin datos de heap (Shenandoah) o fases concurrentes
+                    if (pause != null) {
+                        pauses.add(pause);
+                    }
+                    continue;
+                }
+                before = bytes(heap.group(1), heap.group(2));
+                after = bytes(heap.group(3), heap.group(4));
+                if (heap.group(5) != null) {
+                    committed = bytes(heap.group(5), heap.group(6));
+                }
+            }
+            collections++;
+            if (pause != null) {
+                pauses.add(pause);
+            }
+            // Lo asignado entre dos colecciones es lo que había antes de esta menos lo que dejó la anterior
+            allocated += Math.max(0, before - previousAfter);
+            previousAfter = after;
+            heapAfterMax = Math.max(heapAfterMax, after);
+            committedMax = Math.max(committedMax, committed);
+        }
+
+        Collections.sort(pauses);
+        double pauseTotal = pauses.stream().mapToDouble(Double::doubleValue).sum();
+        double elapsed = uptime > 0 ? uptime : seconds;
+        long rssPeak = rss.stream().mapToLong(Long::longValue).max().orElse(0);
+        long rssAverage = (long) rss.stream().mapToLong(Long::longValue).average().orElse(0);
+        return new Session(started, seconds, exitCode, maxHeap, heapAfterMax, committedMax,
+                elapsed > 0 ? (allocated / (double) (1 << 20)) / elapsed : 0, collections,
+                percentile(pauses, 0.50), percentile(pauses, 0.99), pauses.isEmpty() ? 0 : pauses.get(pauses.size() - 1),
+                elapsed > 0 ? pauseTotal / (elapsed * 10) : 0, rssPeak, rssAverage);
+    }
+
+    /**
+     * Recomienda heap y perfil a partir de las partidas de al menos un minuto.
+     * Devuelve null si todavía no hay ninguna.
+     *
+     * @param totalMemory RAM del equipo en bytes, 0 si se desconoce
+     */
+    static Recommendation recommend(List<Session> sessions, long totalMemory) {
+        long live = 0;
+        long rssPeak = 0;
+        double pauseP99 = 0;
+        int counted = 0;
+        for (Session session : sessions) {
+            if (session.seconds() < MIN_SESSION_SECONDS || session.collections() == 0) {
+                continue;
+            }
+            live = Math.max(live, session.heapAfterGcMax());
+            rssPeak = Math.max(rssPeak, session.rssPeak());
+            pauseP99 = Math.max(pauseP99, session.pauseP99());
+            counted++;
+        }
+        if (counted == 0) {
+            return null;
+        }
+
+        long maxHeap = Math.max(MIN_HEAP, roundUp(live * HEAP_HEADROOM));
+        String reason = "heap vivo máximo " + (live >> 20) + " MB en " + counted + " partidas";
+        if (totalMemory > 0 && maxHeap > totalMemory * 6 / 10) {
+            maxHeap = Math.max(MIN_HEAP, totalMemory * 6 / 10 / HEAP_STEP * HEAP_STEP);
+            reason += ", limitado al 60% de la RAM";
+        }
+        long minHeap = Math.max(MIN_HEAP / 2, maxHeap / 2 / HEAP_STEP * HEAP_STEP);
+
+        JvmTuning.Profile profile = null;
+        if (totalMemory > 0 && rssPeak > totalMemory * 85 / 100) {
+            profile = JvmTuning.Profile.LOW_MEMORY;
+            reason += ", RSS cerca del total de la RAM";
+        } else if (pauseP99 > MAX_PAUSE_P99_MILLIS) {
+            profile = JvmTuning.Profile.LOW_PAUSE;
+            reason += String.format(Locale.ROOT, ", pausas p99 de %.0f ms", pauseP99);
+        }
+        return new Recommendation(memory(minHeap), memory(maxHeap), profile, reason);
+    }
+
+    /**
+     * Recomendación guardada para la instancia, o null si no hay.
+     */
+    public static Recommendation recommendation(String gameDir) {
+        JsonObject profile = readProfile(gameDir);
+        if (profile == null || !profile.has("recommendation")) {
+            return null;
+        }
+        JsonObject json = profile.getAsJsonObject("recommendation");
+        return new Recommendation(json.get("minRam").getAsString(), json.get("maxRam").getAsString(),
+                json.has("profile") ? JvmTuning.Profile.valueOf(json.get("profile").getAsString()) : null,
+                json.get("reason").getAsString());
+    }
+
+    /**
+     * Partidas registradas de la instancia, de la más antigua a la más reciente.
+     */
+    public static List<Session> sessions(String gameDir) {
+        List<Session> sessions = new ArrayList<>();
+        JsonObject profile = readProfile(gameDir);
+        if (profile == null) {
+            return sessions;
+        }
+        for (JsonElement element : profile.getAsJsonArray("sessions")) {
+            JsonObject s = element.getAsJsonObject();
+            sessions.add(new Session(s.get("started").getAsString(), s.get("seconds").getAsLong(),
+                    s.get("exitCode").getAsInt(), s.get("maxHeap").getAsLong(), s.get("heapAfterGcMax").getAsLong(),
+                    s.get("committedMax").getAsLong(), s.get("allocationMbPerSecond").getAsDouble(),
+                    s.get("collections").getAsInt(), s.get("pauseP50").getAsDouble(), s.get("pauseP99").getAsDouble(),
+                    s.get("pauseMax").getAsDouble(), s.get("gcPercent").getAsDouble(), s.get("rssPeak").getAsLong(),
+                    s.get("rssAverage").getAsLong()));
+        }
+        return sessions;
+    }
+
+    /**
+     * Perfil completo de la instancia tal como se guarda en disco, o null si no hay.
+     */
+    public static JsonObject readProfile(String gameDir) {
+        Path file = profileFile(gameDir);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return JsonParser.parseString(Files.readString(file)).getAsJsonObject();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Perfil de telemetría corrupto en {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void save(String gameDir, List<Session> sessions, Recommendation recommendation) {
+        JsonObject json = new JsonObject();
+        JsonArray array = new JsonArray();
+        for (Session session : sessions) {
+            JsonObject s = new JsonObject();
+            s.addProperty("started", session.started());
+            s.addProperty("seconds", session.seconds());
+            s.addProperty("exitCode", session.exitCode());
+            s.addProperty("maxHeap", session.maxHeap());
+            s.addProperty("heapAfterGcMax", session.heapAfterGcMax());
+            s.addProperty("committedMax", session.committedMax());
+            s.addProperty("allocationMbPerSecond", session.allocationMbPerSecond());
+            s.addProperty("collections", session.collections());
+            s.addProperty("pauseP50", session.pauseP50());
+            s.addProperty("pauseP99", session.pauseP99());
+            s.addProperty("pauseMax", session.pauseMax());
+            s.addProperty("gcPercent", session.gcPercent());
+            s.addProperty("rssPeak", session.rssPeak());
+            s.addProperty("rssAverage", session.rssAverage());
+            array.add(s);
+        }
+        json.add("sessions", array);
+        if (recommendation != null) {
+            JsonObject r = new JsonObject();
+            r.addProperty("minRam", recommendation.minRam());
+            r.addProperty("maxRam", recommendation.maxRam());
+            if (recommendation.profile() != null) {
+                r.addProperty("profile", recommendation.profile().name());
+            }
+            r.addProperty("reason", recommendation.reason());
+            json.add("recommendation", r);
+        }
+        Path file = profileFile(gameDir);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, json.toString(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("No se pudo guardar el perfil de telemetría: {}", e.getMessage());
+        }
+    }
+
+    private static Path profileFile(String gameDir) {
+        return Paths.get(gameDir, ".neutron", "telemetry.json");
+    }
+
+    private static long readRss(Path status) {
+        try {
+            for (String line : Files.readAllLines(status)) {
+                // "VmRSS:	  123456 kB"
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring(6).trim().split("\\s+")[0]) << 10;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // El proceso terminó entre la comprobación y la lectura
+        }
+        return 0;
+    }
+
+    private static double percentile(List<Double> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(p * sorted.size()) - 1));
+    }
+
+    private static double number(String value) {
+        return Double.parseDouble(value.replace(',', '.'));
+    }
+
+    private static long bytes(String value, String unit) {
+        long amount = Long.parseLong(value);
+        return switch (unit) {
+            case "K" -> amount << 10;
+            case "M" -> amount << 20;
+            default -> amount << 30;
+        };
+    }
+
+    private static long roundUp(long value) {
+        return (value + HEAP_STEP - 1) / HEAP_STEP * HEAP_STEP;
+    }
+
+    private static String memory(long bytes) {
+        return bytes % (1L << 30) == 0 ? (bytes >> 30) + "G" : (bytes >> 20) + "M";
+    }
+}
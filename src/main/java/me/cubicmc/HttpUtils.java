@@ -8,16 +8,87 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class HttpUtils {
+    private static final Logger LOGGER = Logger.getLogger(HttpUtils.class.getName());
+
+    // Cliente compartido: reutiliza conexiones entre peticiones
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static volatile String manifestUrl = "https://launchermeta.mojang.com/mc/game/version_manifest.json";
+
+    // El manifiesto cambia con cada versión nueva; se refresca pasado este tiempo
+    private static final long MANIFEST_TTL_MILLIS = 60_000;
+    private static volatile JsonObject manifestCache;
+    private static volatile long manifestFetchedAt;
+    // Validadores de la última respuesta, para peticiones condicionales (304 sin cuerpo)
+    private static volatile String manifestETag;
+    private static volatile String manifestLastModified;
+
+    // Los JSON de cada versión no cambian una vez publicados
+    private static final Map<String, JsonObject> VERSION_DATA_CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, JsonObject> ASSET_INDEX_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Cambia la URL del manifiesto de versiones (espejos o servidores locales).
+     */
+    public static void setManifestUrl(String url) {
+        manifestUrl = url;
+        clearCache();
+    }
+
+    /**
+     * Vacía las cachés en memoria de manifiesto, versiones e índices.
+     */
+    public static void clearCache() {
+        manifestCache = null;
+        manifestETag = null;
+        manifestLastModified = null;
+        VERSION_DATA_CACHE.clear();
+        ASSET_INDEX_CACHE.clear();
+    }
+
+    /**
+     * Los objetos devueltos se comparten entre llamadas y no deben modificarse.
+     */
     public static JsonObject getManifest() {
+        JsonObject cached = manifestCache;
+        if (cached != null && System.currentTimeMillis() - manifestFetchedAt < MANIFEST_TTL_MILLIS) {
+            return cached;
+        }
+        return refreshManifest();
+    }
+
+    /**
+     * Revalida el manifiesto aunque no haya caducado. Con caché se envía una
+     * petición condicional (If-None-Match / If-Modified-Since): si no ha
+     * cambiado, el servidor responde 304 y se devuelve el mismo objeto.
+     */
+    public static synchronized JsonObject refreshManifest() {
+        JsonObject cached = manifestCache;
         try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://launchermeta.mojang.com/mc/game/version_manifest.json"))
-                    .build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
+                    .uri(URI.create(manifestUrl));
+            if (cached != null && manifestETag != null) {
+                builder.header("If-None-Match", manifestETag);
+            }
+            if (cached != null && manifestLastModified != null) {
+                builder.header("If-Modified-Since", manifestLastModified);
+            }
+            HttpResponse<String> response = CLIENT.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 304 && cached != null) {
+                manifestFetchedAt = System.currentTimeMillis();
+                return cached;
+            }
             JsonObject jsonObject = JsonParser.parseString(response.body()).getAsJsonObject();
+            manifestETag = response.headers().firstValue("ETag").orElse(null);
+            manifestLastModified = response.headers().firstValue("Last-Modified").orElse(null);
+            manifestCache = jsonObject;
+            manifestFetchedAt = System.currentTimeMillis();
             return jsonObject;
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
@@ -29,14 +100,18 @@ public class HttpUtils {
     }
 
     public static JsonObject getVersionData(String version) {
+        JsonObject cached = VERSION_DATA_CACHE.get(version);
+        if (cached != null) {
+            return cached;
+        }
         try {
             JsonObject Version = ManifestParser.getVersionMeta(version);
-            HttpClient client = HttpClient.newHttpClient();
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(Version.get("url").getAsString()))
                     .build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
             JsonObject jsonObject = JsonParser.parseString(response.body()).getAsJsonObject();
+            VERSION_DATA_CACHE.put(version, jsonObject);
             return jsonObject;
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
@@ -48,15 +123,19 @@ public class HttpUtils {
     }
 
     public static JsonObject getAssetIndex(String version) {
+        JsonObject cached = ASSET_INDEX_CACHE.get(version);
+        if (cached != null) {
+            return cached;
+        }
         JsonObject versionData = HttpUtils.getVersionData(version);
         JsonObject assetIndexObject = versionData.getAsJsonObject("assetIndex");
         try {
-            HttpClient client = HttpClient.newHttpClient();
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(assetIndexObject.get("url").getAsString()))
                     .build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
             JsonObject jsonObject = JsonParser.parseString(response.body()).getAsJsonObject();
+            ASSET_INDEX_CACHE.put(version, jsonObject);
             return jsonObject;
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
@@ -66,4 +145,61 @@ public class HttpUtils {
             return notFound;
         }
     }
+
+    /**
+     * Descarga y parsea un JSON arbitrario. Devuelve un objeto con la clave
+     * "Error" si la petición falla, igual que el resto de métodos.
+     */
+    public static JsonObject getJson(String url) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .build();
+            HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                JsonObject error = new JsonObject();
+                error.addProperty("Error", "HTTP " + response.statusCode() + " para " + url);
+                return error;
+            }
+            return JsonParser.parseString(response.body()).getAsJsonObject();
+        } catch (IOException e) {
+            return failure(url, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failure(url, e);
+        }
+    }
+
+    /**
+     * Envía un JSON por POST y parsea la respuesta. Mismo convenio de errores que getJson.
+     */
+    public static JsonObject postJson(String url, JsonObject body) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .header("Content-Type", "application/json")
+                    .header("User-Agent", "CubicLauncher/neutron4j")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build();
+            HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                JsonObject error = new JsonObject();
+                error.addProperty("Error", "HTTP " + response.statusCode() + " para " + url);
+                return error;
+            }
+            return JsonParser.parseString(response.body()).getAsJsonObject();
+        } catch (IOException e) {
+            return failure(url, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failure(url, e);
+        }
+    }
+
+    private static JsonObject failure(String url, Exception e) {
+        LOGGER.log(Level.WARNING, "⚠️ Error en la petición a " + url, e);
+        JsonObject error = new JsonObject();
+        error.addProperty("Error", String.valueOf(e));
+        return error;
+    }
 }
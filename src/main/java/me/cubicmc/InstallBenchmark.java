@@ -0,0 +1,470 @@
+package me.cubicmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark de instalación completa contra un servidor local que imita los
+ * endpoints de Mojang (manifiesto, JSON de versión, índice de assets,
+ * resources y bibliotecas). Los ficheros se generan de forma determinista a
+ * partir de una semilla, con una distribución de tamaños log-normal parecida a
+ * la de los assets reales, y se sirven en streaming sin guardarlos en memoria.
+ *
+ * Ejecuta una instalación en frío y varias en caliente sobre el mismo gameDir
+ * e informa de ficheros/s, MB/s, latencia por fichero (p50/p99) y heap máximo.
+ * El servidor corre en la misma JVM, así que el heap incluye su consumo.
+ *
+ * <pre>
+ * java -cp neutron4j.jar me.cubicmc.InstallBenchmark --objects 4000 --latency-ms 20 \
+ *      --bandwidth-kbps 2048 --error-rate 0.002 --threads 16 --warm-runs 2 --memory-mb 64
+ * </pre>
+ */
+public class InstallBenchmark {
+    private static final Logger LOGGER = Logger.getLogger(InstallBenchmark.class.getName());
+
+    private static final String VERSION = "bench";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Parámetros del benchmark y del servidor simulado.
+     */
+    record Config(int objects, int libraries, long clientBytes, long latencyMillis, long bandwidthBytesPerSecond,
+                  double errorRate, int threads, int warmRuns, long seed, long memoryBudget, boolean verbose,
+                  boolean keep) {
+
+        static Config parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (int i = 0; i < args.length; i++) {
+                if (!args[i].startsWith("--")) {
+                    throw new IllegalArgumentException("Argumento no reconocido: " + args[i]);
+                }
+                String key = args[i].substring(2);
+                if (key.equals("verbose") || key.equals("keep")) {
+                    values.put(key, "true");
+                } else if (i + 1 < args.length) {
+                    values.put(key, args[++i]);
+                } else {
+                    throw new IllegalArgumentException("Falta el valor de --" + key);
+                }
+            }
+            return new Config(
+                    Integer.parseInt(values.getOrDefault("objects", "3500")),
+                    Integer.parseInt(values.getOrDefault("libraries", "80")),
+                    Long.parseLong(values.getOrDefault("client-mb", "24")) << 20,
+                    Long.parseLong(values.getOrDefault("latency-ms", "0")),
+                    Long.parseLong(values.getOrDefault("bandwidth-kbps", "0")) * 1024,
+                    Double.parseDouble(values.getOrDefault("error-rate", "0")),
+                    Integer.parseInt(values.getOrDefault("threads", "16")),
+                    Integer.parseInt(values.getOrDefault("warm-runs", "1")),
+                    Long.parseLong(values.getOrDefault("seed", "42")),
+                    Long.parseLong(values.getOrDefault("memory-mb", "64")) << 20,
+                    values.containsKey("verbose"),
+                    values.containsKey("keep"));
+        }
+    }
+
+    /**
+     * Resultado de una instalación.
+     */
+    record Run(String name, int files, long bytes, long millis, long p50Millis, long p99Millis, long peakHeapBytes,
+               int missing) {
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(1, millis) / 1000.0;
+            return String.format(Locale.ROOT,
+                    "%-9s ficheros=%-6d %8.1f MB  tiempo=%7.2f s  ficheros/s=%8.1f  MB/s=%7.1f  p50=%5d ms  p99=%5d ms  heap pico=%5d MB  faltan=%d",
+                    name, files, bytes / 1048576.0, seconds, files / seconds, bytes / 1048576.0 / seconds,
+                    p50Millis, p99Millis, peakHeapBytes >> 20, missing);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        Logger.getLogger("me.cubicmc").setLevel(config.verbose() ? Level.INFO : Level.WARNING);
+
+        Path gameDir = Files.createTempDirectory("neutron-bench-");
+        try (MockServer server = new MockServer(config)) {
+            LOGGER.warning(String.format(Locale.ROOT,
+                    "Servidor simulado en %s: %d objetos (%.1f MB), %d bibliotecas, cliente de %d MB, latencia %d ms, "
+                            + "%d KB/s por conexión, errores %.2f%%",
+                    server.baseUrl(), config.objects(), server.assetBytes() / 1048576.0, config.libraries(),
+                    config.clientBytes() >> 20, config.latencyMillis(), config.bandwidthBytesPerSecond() / 1024,
+                    config.errorRate() * 100));
+
+            HttpUtils.setManifestUrl(server.baseUrl() + "/mc/game/version_manifest.json");
+            DownloadUtil.setResourcesBaseUrl(server.baseUrl() + "/resources/");
+            DownloadUtil.setAssetMemoryBudget(config.memoryBudget());
+
+            System.out.println(install("frío", gameDir.toString(), config, server));
+            for (int i = 1; i <= config.warmRuns(); i++) {
+                System.out.println(install("caliente" + i, gameDir.toString(), config, server));
+            }
+        } finally {
+            DownloadUtil.setDownloadListener(null);
+            if (!config.keep()) {
+                deleteTree(gameDir);
+            } else {
+                System.out.println("gameDir conservado en " + gameDir);
+            }
+        }
+    }
+
+    private static Run install(String name, String gameDir, Config config, MockServer server)
+            throws IOException, InterruptedException {
+        HttpUtils.clearCache();
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong bytes = new AtomicLong();
+        DownloadUtil.setDownloadListener((url, size, nanos) -> {
+            latencies.add(nanos);
+            bytes.addAndGet(size);
+        });
+
+        long start = System.nanoTime();
+        DownloadUtil.downloadVersionData(VERSION, gameDir);
+        DownloadUtil.downloadVersionIndex(VERSION, gameDir);
+        DownloadUtil.downloadClient(VERSION, config.threads(), gameDir);
+        DownloadUtil.downloadLibraries(VERSION, config.threads(), gameDir);
+        DownloadUtil.downloadAssets(VERSION, config.threads(), gameDir);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        DownloadUtil.setDownloadListener(null);
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Run(name, sorted.length, bytes.get(), millis, percentile(sorted, 0.50) / 1_000_000,
+                percentile(sorted, 0.99) / 1_000_000, peakHeap, server.countMissing(Paths.get(gameDir, "shared")));
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Fichero generado: el contenido sale de un generador con la semilla dada.
+     */
+    private record Blob(long seed, long size, String sha1, String storePath) {
+    }
+
+    /**
+     * Servidor HTTP local que sirve el manifiesto, la versión, el índice y los
+     * ficheros binarios, con latencia, ancho de banda por conexión y errores
+     * (HTTP 503 o un byte corrupto) configurables.
+     */
+    static class MockServer implements AutoCloseable {
+        private final Config config;
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "mock-mojang");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private final Map<String, byte[]> documents = new ConcurrentHashMap<>();
+        private final Map<String, Blob> blobs = new ConcurrentHashMap<>();
+        private final String baseUrl;
+        private long assetBytes;
+
+        MockServer(Config config) throws IOException {
+            this.config = config;
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512);
+            baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+            build();
+            server.createContext("/", this::handle);
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        String baseUrl() {
+            return baseUrl;
+        }
+
+        long assetBytes() {
+            return assetBytes;
+        }
+
+        private void build() throws IOException {
+            SplittableRandom random = new SplittableRandom(config.seed());
+
+            // Assets: mediana ~6 KB con cola larga (sonidos y música hasta varios MB)
+            JsonObject objects = new JsonObject();
+            for (int i = 0; i < config.objects(); i++) {
+                long size = logNormal(random, 6_000, 1.7, 64, 6L << 20);
+                Blob blob = newBlob(random.nextLong(), size, null);
+                String hash = blob.sha1();
+                blobs.put("/resources/" + hash.substring(0, 2) + "/" + hash,
+                        new Blob(blob.seed(), size, hash, "assets/objects/" + hash.substring(0, 2) + "/" + hash));
+                JsonObject object = new JsonObject();
+                object.addProperty("hash", hash);
+                object.addProperty("size", size);
+                // Como en los índices reales, la mayoría de objetos son sonidos (diferibles)
+                objects.add(i % 4 == 0 ? "minecraft/bench/object" + i + ".bin"
+                        : "minecraft/sounds/bench/object" + i + ".ogg", object);
+                assetBytes += size;
+            }
+            JsonObject index = new JsonObject();
+            index.add("objects", objects);
+            byte[] indexBytes = index.toString().getBytes(StandardCharsets.UTF_8);
+            documents.put("/indexes/" + VERSION + ".json", indexBytes);
+
+            JsonArray libraries = new JsonArray();
+            for (int i = 0; i < config.libraries(); i++) {
+                long size = logNormal(random, 120_000, 1.2, 2_000, 8L << 20);
+                String path = "bench/lib" + i + "/1.0/lib" + i + "-1.0.jar";
+                Blob blob = newBlob(random.nextLong(), size, "libraries/" + path);
+                blobs.put("/libraries/" + path, blob);
+                JsonObject artifact = new JsonObject();
+                artifact.addProperty("path", path);
+                artifact.addProperty("url", baseUrl + "/libraries/" + path);
+                artifact.addProperty("sha1", blob.sha1());
+                artifact.addProperty("size", size);
+                JsonObject downloads = new JsonObject();
+                downloads.add("artifact", artifact);
+                JsonObject lib = new JsonObject();
+                lib.addProperty("name", "bench:lib" + i + ":1.0");
+                lib.add("downloads", downloads);
+                libraries.add(lib);
+            }
+
+            Blob client = newBlob(random.nextLong(), config.clientBytes(),
+                    "versions/" + VERSION + "/" + VERSION + ".jar");
+            blobs.put("/client.jar", client);
+
+            JsonObject clientDownload = new JsonObject();
+            clientDownload.addProperty("url", baseUrl + "/client.jar");
+            clientDownload.addProperty("sha1", client.sha1());
+            clientDownload.addProperty("size", client.size());
+            JsonObject downloads = new JsonObject();
+            downloads.add("client", clientDownload);
+
+            JsonObject assetIndex = new JsonObject();
+            assetIndex.addProperty("id", VERSION);
+            assetIndex.addProperty("url", baseUrl + "/indexes/" + VERSION + ".json");
+            assetIndex.addProperty("sha1", sha1(indexBytes));
+            assetIndex.addProperty("size", indexBytes.length);
+            assetIndex.addProperty("totalSize", assetBytes);
+
+            JsonObject version = new JsonObject();
+            version.addProperty("id", VERSION);
+            version.addProperty("type", "release");
+            version.addProperty("mainClass", "net.minecraft.client.main.Main");
+            version.addProperty("assets", VERSION);
+            version.add("assetIndex", assetIndex);
+            version.add("downloads", downloads);
+            version.add("libraries", libraries);
+            byte[] versionBytes = version.toString().getBytes(StandardCharsets.UTF_8);
+            documents.put("/v1/packages/" + VERSION + ".json", versionBytes);
+
+            JsonObject entry = new JsonObject();
+            entry.addProperty("id", VERSION);
+            entry.addProperty("type", "release");
+            entry.addProperty("url", baseUrl + "/v1/packages/" + VERSION + ".json");
+            entry.addProperty("sha1", sha1(versionBytes));
+            JsonArray versions = new JsonArray();
+            versions.add(entry);
+            JsonObject latest = new JsonObject();
+            latest.addProperty("release", VERSION);
+            latest.addProperty("snapshot", VERSION);
+            JsonObject manifest = new JsonObject();
+            manifest.add("latest", latest);
+            manifest.add("versions", versions);
+            documents.put("/mc/game/version_manifest.json", manifest.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static long logNormal(SplittableRandom random, double median, double sigma, long min, long max) {
+            // Box-Muller para una normal estándar
+            double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble()))
+                    * Math.cos(2 * Math.PI * random.nextDouble());
+            return Math.max(min, Math.min(max, (long) (median * Math.exp(sigma * gaussian))));
+        }
+
+        private static Blob newBlob(long seed, long size, String storePath) throws IOException {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-1");
+                generate(seed, size, 0, size - 1, digest::update);
+                return new Blob(seed, size, DownloadUtil.toHex(digest.digest()), storePath);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private interface Sink {
+            void write(byte[] buffer, int offset, int length) throws IOException;
+        }
+
+        /**
+         * Genera los bytes [from, to] del fichero. El generador siempre rellena
+         * bloques completos, así que el contenido no depende del rango pedido.
+         */
+        private static void generate(long seed, long size, long from, long to, Sink sink) throws IOException {
+            SplittableRandom random = new SplittableRandom(seed);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (long position = 0; position < size && position <= to; position += BUFFER_SIZE) {
+                random.nextBytes(buffer);
+                long chunkEnd = Math.min(size, position + BUFFER_SIZE) - 1;
+                if (chunkEnd < from) {
+                    continue;
+                }
+                int offset = (int) Math.max(0, from - position);
+                int end = (int) (Math.min(chunkEnd, to) - position);
+                sink.write(buffer, offset, end - offset + 1);
+            }
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try (exchange) {
+                if (config.latencyMillis() > 0) {
+                    Thread.sleep(config.latencyMillis());
+                }
+                String path = exchange.getRequestURI().getPath();
+                byte[] document = documents.get(path);
+                Blob blob = blobs.get(path);
+                if (document == null && blob == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+
+                // Los metadatos no fallan: el benchmark mide la descarga de ficheros
+                boolean inject = blob != null && config.errorRate() > 0
+                        && ThreadLocalRandom.current().nextDouble() < config.errorRate();
+                if (inject && ThreadLocalRandom.current().nextBoolean()) {
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+
+                if (document != null) {
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, document.length);
+                    exchange.getResponseBody().write(document);
+                    return;
+                }
+
+                long from = 0;
+                long to = blob.size() - 1;
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                if (range != null && range.startsWith("bytes=")) {
+                    String[] bounds = range.substring(6).split("-");
+                    from = Long.parseLong(bounds[0]);
+                    to = bounds.length > 1 && !bounds[1].isEmpty() ? Math.min(to, Long.parseLong(bounds[1])) : to;
+                    exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + blob.size());
+                    exchange.sendResponseHeaders(206, to - from + 1);
+                } else {
+                    exchange.sendResponseHeaders(200, blob.size());
+                }
+
+                OutputStream out = exchange.getResponseBody();
+                long startNanos = System.nanoTime();
+                long[] written = {0};
+                boolean[] corrupt = {inject};
+                generate(blob.seed(), blob.size(), from, to, (buffer, offset, length) -> {
+                    if (corrupt[0]) {
+                        buffer[offset] ^= 0x5A;
+                        corrupt[0] = false;
+                    }
+                    out.write(buffer, offset, length);
+                    written[0] += length;
+                    throttle(written[0], startNanos);
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void throttle(long written, long startNanos) throws IOException {
+            long rate = config.bandwidthBytesPerSecond();
+            if (rate <= 0) {
+                return;
+            }
+            long expectedNanos = written * 1_000_000_000L / rate;
+            long sleepNanos = expectedNanos - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrumpido", e);
+                }
+            }
+        }
+
+        /**
+         * Cuenta los ficheros que deberían estar en el almacén y faltan o tienen otro tamaño.
+         */
+        int countMissing(Path shared) throws IOException {
+            int missing = 0;
+            for (Blob blob : blobs.values()) {
+                Path file = shared.resolve(blob.storePath());
+                if (!Files.exists(file) || Files.size(file) != blob.size()) {
+                    missing++;
+                }
+            }
+            return missing;
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private static String sha1(byte[] data) throws IOException {
+        try {
+            return DownloadUtil.toHex(MessageDigest.getInstance("SHA-1").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+}
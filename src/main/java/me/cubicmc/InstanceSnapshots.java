@@ -0,0 +1,467 @@
+package me.cubicmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Instantáneas de mods, config y, opcionalmente, saves de una instancia.
+ *
+ * El contenido se guarda por SHA-1 en shared/snapshots/objects, así que un
+ * fichero idéntico en varias instantáneas (o instancias que comparten el
+ * almacén) ocupa una sola vez. Solo se calcula el hash de los ficheros cuyo
+ * tamaño o fecha cambió desde la última instantánea; los jars y demás
+ * ficheros inmutables entran al almacén con un hardlink y los editables se
+ * copian para que el juego no pueda modificar el objeto guardado.
+ *
+ * Restaurar solo toca los ficheros que difieren. El juego debe estar cerrado
+ * al tomar o restaurar una instantánea de saves.
+ */
+public class InstanceSnapshots {
+    private static final Logger LOGGER = Logger.getLogger(InstanceSnapshots.class.getName());
+
+    private static final List<String> DEFAULT_DIRS = List.of("mods", "config");
+    private static final String SAVES = "saves";
+    private static final DateTimeFormatter ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    public record Snapshot(String id, String label, String created, List<String> dirs, int files, long bytes) {
+    }
+
+    public record Report(String id, int files, int hashed, int stored, long storedBytes, long millis) {
+    }
+
+    public record RestoreReport(String id, String safetySnapshot, int unchanged, int restored, int deleted,
+                                long millis) {
+    }
+
+    private record FileState(long size, long modified, String sha1) {
+    }
+
+    /**
+     * Toma una instantánea de la instancia. Devuelve su identificador en el informe.
+     */
+    public static Report snapshot(String gameDir, String label, boolean includeSaves, int threadCount)
+            throws IOException, InterruptedException {
+        List<String> dirs = new ArrayList<>(DEFAULT_DIRS);
+        if (includeSaves) {
+            dirs.add(SAVES);
+        }
+        try (var _ = StoreLock.shared(gameDir)) {
+            return take(gameDir, label, dirs, threadCount);
+        }
+    }
+
+    private static Report take(String gameDir, String label, List<String> dirs, int threadCount)
+            throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        Path instance = Paths.get(gameDir).toAbsolutePath().normalize();
+        Path objects = storeDir(gameDir).resolve("objects");
+        Path indexFile = instance.resolve(".neutron").resolve("snapshot-index.json");
+        Map<String, FileState> index = loadIndex(indexFile);
+
+        Map<String, BasicFileAttributes> current = scan(instance, dirs);
+        Map<String, FileState> files = new ConcurrentHashMap<>();
+        AtomicInteger hashed = new AtomicInteger();
+        AtomicInteger stored = new AtomicInteger();
+        AtomicLong storedBytes = new AtomicLong();
+
+        try (DownloadUtil.CloseableExecutorService ces =
+                     new DownloadUtil.CloseableExecutorService(Executors.newFixedThreadPool(threadCount))) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<String, BasicFileAttributes> entry : current.entrySet()) {
+                String relative = entry.getKey();
+                long size = entry.getValue().size();
+                long modified = entry.getValue().lastModifiedTime().toMillis();
+                FileState known = index.get(relative);
+                // Ruta rápida: mismo tamaño y fecha que la última vez y el objeto sigue en el almacén
+                if (known != null && known.size() == size && known.modified() == modified
+                        && Files.exists(objectPath(objects, known.sha1()))) {
+                    files.put(relative, known);
+                    continue;
+                }
+                futures.add(ces.get().submit(() -> {
+                    Path file = instance.resolve(relative);
+                    String sha1 = DownloadUtil.calculateSHA1(file);
+                    hashed.incrementAndGet();
+                    if (store(file, relative, objectPath(objects, sha1))) {
+                        stored.incrementAndGet();
+                        storedBytes.addAndGet(size);
+                    }
+                    files.put(relative, new FileState(size, modified, sha1));
+                    return null;
+                }));
+            }
+            await(futures);
+        }
+
+        String id = newId(manifestDir(gameDir));
+        JsonObject manifest = new JsonObject();
+        manifest.addProperty("id", id);
+        manifest.addProperty("label", label != null ? label : "");
+        manifest.addProperty("created", LocalDateTime.now().toString());
+        JsonArray dirsJson = new JsonArray();
+        dirs.forEach(dirsJson::add);
+        manifest.add("dirs", dirsJson);
+        manifest.add("files", toJson(new TreeMap<>(files)));
+        writeAtomically(manifestDir(gameDir).resolve(id + ".json"), manifest.toString());
+
+        // El índice conserva las entradas de carpetas fuera de esta instantánea (saves)
+        index.keySet().removeIf(relative -> inScope(relative, dirs));
+        index.putAll(files);
+        writeAtomically(indexFile, toJson(index).toString());
+
+        Report report = new Report(id, files.size(), hashed.get(), stored.get(), storedBytes.get(),
+                System.currentTimeMillis() - start);
+        LOGGER.info("📸 Instantánea " + id + " de " + instance + " en " + report.millis() + " ms: "
+                + report.files() + " ficheros, " + report.hashed() + " con hash nuevo, " + report.stored()
+                + " objetos nuevos (" + (report.storedBytes() >> 10) + " KB)");
+        return report;
+    }
+
+    /**
+     * Instantáneas de la instancia, de la más antigua a la más reciente.
+     */
+    public static List<Snapshot> list(String gameDir) throws IOException {
+        Path dir = manifestDir(gameDir);
+        List<Snapshot> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return snapshots;
+        }
+        try (Stream<Path> paths = Files.list(dir)) {
+            for (Path path : paths.filter(p -> p.getFileName().toString().endsWith(".json")).sorted().toList()) {
+                JsonObject manifest = readManifest(path);
+                List<String> dirs = new ArrayList<>();
+                manifest.getAsJsonArray("dirs").forEach(e -> dirs.add(e.getAsString()));
+                long bytes = 0;
+                JsonObject files = manifest.getAsJsonObject("files");
+                for (Map.Entry<String, JsonElement> file : files.entrySet()) {
+                    bytes += file.getValue().getAsJsonObject().get("size").getAsLong();
+                }
+                snapshots.add(new Snapshot(manifest.get("id").getAsString(), manifest.get("label").getAsString(),
+                        manifest.get("created").getAsString(), dirs, files.size(), bytes));
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Devuelve la instancia al estado de la instantánea. Antes toma otra del
+     * estado actual, así que una restauración también se puede deshacer.
+     */
+    public static RestoreReport restore(String gameDir, String id, int threadCount)
+            throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        Path instance = Paths.get(gameDir).toAbsolutePath().normalize();
+        Path objects = storeDir(gameDir).resolve("objects");
+        Path manifestFile = manifestDir(gameDir).resolve(id + ".json");
+        if (!Files.exists(manifestFile)) {
+            throw new IOException("La instantánea no existe: " + id);
+        }
+        JsonObject manifest = readManifest(manifestFile);
+        List<String> dirs = new ArrayList<>();
+        manifest.getAsJsonArray("dirs").forEach(e -> dirs.add(e.getAsString()));
+        Map<String, FileState> wanted = fromJson(manifest.getAsJsonObject("files"));
+
+        try (var _ = StoreLock.shared(gameDir)) {
+            for (FileState state : wanted.values()) {
+                if (!Files.exists(objectPath(objects, state.sha1()))) {
+                    throw new IOException("Falta el objeto " + state.sha1() + " de la instantánea " + id);
+                }
+            }
+
+            // La instantánea previa deja el índice al día: lo que coincida con ella no se toca
+            Report safety = take(gameDir, "antes de restaurar " + id, dirs, threadCount);
+            Path indexFile = instance.resolve(".neutron").resolve("snapshot-index.json");
+            Map<String, FileState> index = loadIndex(indexFile);
+
+            int deleted = 0;
+            for (String relative : scan(instance, dirs).keySet()) {
+                if (!wanted.containsKey(relative)) {
+                    Files.delete(instance.resolve(relative));
+                    index.remove(relative);
+                    deleted++;
+                }
+            }
+            for (String dir : dirs) {
+                deleteEmptyDirs(instance.resolve(dir));
+            }
+
+            AtomicInteger restored = new AtomicInteger();
+            int unchanged = 0;
+            try (DownloadUtil.CloseableExecutorService ces =
+                         new DownloadUtil.CloseableExecutorService(Executors.newFixedThreadPool(threadCount))) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (Map.Entry<String, FileState> entry : wanted.entrySet()) {
+                    String relative = entry.getKey();
+                    FileState state = entry.getValue();
+                    FileState present = index.get(relative);
+                    if (present != null && present.sha1().equals(state.sha1())) {
+                        unchanged++;
+                        continue;
+                    }
+                    futures.add(ces.get().submit(() -> {
+                        Path target = instance.resolve(relative);
+                        Path temp = target.resolveSibling(target.getFileName() + ".restore-tmp");
+                        Path object = objectPath(objects, state.sha1());
+                        if (InstanceTemplates.isImmutable(relative)) {
+                            LinkUtil.linkOrCopy(object, temp);
+                        } else {
+                            Files.createDirectories(temp.getParent());
+                            Files.copy(object, temp, StandardCopyOption.REPLACE_EXISTING);
+                            Files.setLastModifiedTime(temp, FileTime.fromMillis(state.modified()));
+                        }
+                        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        restored.incrementAndGet();
+                        return null;
+                    }));
+                }
+                await(futures);
+            }
+
+            // Los hardlinks comparten la fecha del objeto: se vuelve a leer para el índice
+            for (Map.Entry<String, FileState> entry : wanted.entrySet()) {
+                Path file = instance.resolve(entry.getKey());
+                index.put(entry.getKey(), new FileState(Files.size(file),
+                        Files.getLastModifiedTime(file).toMillis(), entry.getValue().sha1()));
+            }
+            writeAtomically(indexFile, toJson(index).toString());
+
+            RestoreReport report = new RestoreReport(id, safety.id(), unchanged, restored.get(), deleted,
+                    System.currentTimeMillis() - start);
+            LOGGER.info("⏪ Instantánea " + id + " restaurada en " + report.millis() + " ms: " + report.restored()
+                    + " ficheros repuestos, " + report.deleted() + " eliminados, " + report.unchanged()
+                    + " sin cambios (estado anterior en " + report.safetySnapshot() + ")");
+            return report;
+        }
+    }
+
+    /**
+     * Borra una instantánea y los objetos que ya no usa ninguna otra, de esta
+     * instancia o de cualquier otra que comparta el almacén.
+     */
+    public static int delete(String gameDir, String id) throws IOException {
+        try (var _ = StoreLock.exclusive(gameDir)) {
+            if (!Files.deleteIfExists(manifestDir(gameDir).resolve(id + ".json"))) {
+                throw new IOException("La instantánea no existe: " + id);
+            }
+            Path store = storeDir(gameDir);
+            Set<String> referenced = new HashSet<>();
+            try (Stream<Path> paths = Files.walk(store.resolve("manifests"))) {
+                for (Path path : paths.filter(p -> p.toString().endsWith(".json")).toList()) {
+                    for (Map.Entry<String, JsonElement> file : readManifest(path).getAsJsonObject("files").entrySet()) {
+                        referenced.add(file.getValue().getAsJsonObject().get("sha1").getAsString());
+                    }
+                }
+            }
+            int removed = 0;
+            Path objects = store.resolve("objects");
+            if (Files.isDirectory(objects)) {
+                try (Stream<Path> paths = Files.walk(objects)) {
+                    for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                        if (!referenced.contains(path.getFileName().toString())) {
+                            Files.delete(path);
+                            removed++;
+                        }
+                    }
+                }
+            }
+            LOGGER.info("🗑️ Instantánea " + id + " eliminada (" + removed + " objetos sin uso borrados)");
+            return removed;
+        }
+    }
+
+    private static Path storeDir(String gameDir) {
+        return Paths.get(gameDir, "shared", "snapshots");
+    }
+
+    /**
+     * Las instantáneas se guardan por instancia: nombre de la carpeta más un
+     * hash corto de su ruta, para que instancias con el mismo nombre que
+     * comparten almacén no se mezclen.
+     */
+    private static Path manifestDir(String gameDir) {
+        Path instance = Paths.get(gameDir).toAbsolutePath().normalize();
+        String key;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            key = DownloadUtil.toHex(digest.digest(instance.toString().getBytes(StandardCharsets.UTF_8)))
+                    .substring(0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 no disponible", e);
+        }
+        Path name = instance.getFileName();
+        return storeDir(gameDir).resolve("manifests").resolve((name != null ? name : "root") + "-" + key);
+    }
+
+    private static Path objectPath(Path objects, String sha1) {
+        return objects.resolve(sha1.substring(0, 2)).resolve(sha1);
+    }
+
+    /**
+     * Guarda el fichero en el almacén si el objeto no existe. Devuelve true si lo añadió.
+     */
+    private static boolean store(Path file, String relative, Path object) throws IOException {
+        if (Files.exists(object)) {
+            return false;
+        }
+        Path temp = object.resolveSibling(object.getFileName() + ".tmp-" + System.nanoTime());
+        if (InstanceTemplates.isImmutable(relative)) {
+            LinkUtil.linkOrCopy(file, temp);
+        } else {
+            // Un hardlink de un fichero editable cambiaría con la instancia
+            Files.createDirectories(temp.getParent());
+            Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(temp, object, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    private static Map<String, BasicFileAttributes> scan(Path instance, List<String> dirs) throws IOException {
+        Map<String, BasicFileAttributes> files = new LinkedHashMap<>();
+        for (String dir : dirs) {
+            Path root = instance.resolve(dir);
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    String relative = instance.relativize(path).toString().replace('\\', '/');
+                    // Restos de una restauración interrumpida
+                    if (attrs.isRegularFile() && !relative.endsWith(".restore-tmp")) {
+                        files.put(relative, attrs);
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private static boolean inScope(String relative, List<String> dirs) {
+        for (String dir : dirs) {
+            if (relative.startsWith(dir + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void deleteEmptyDirs(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.filter(Files::isDirectory).filter(p -> !p.equals(root))
+                    .sorted(Comparator.comparingInt(Path::getNameCount).reversed()).toList()) {
+                try (Stream<Path> children = Files.list(path)) {
+                    if (children.findAny().isEmpty()) {
+                        Files.delete(path);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String newId(Path dir) {
+        String base = LocalDateTime.now().format(ID_FORMAT);
+        String id = base;
+        for (int i = 1; Files.exists(dir.resolve(id + ".json")); i++) {
+            id = base + "-" + i;
+        }
+        return id;
+    }
+
+    private static void await(List<Future<?>> futures) throws IOException, InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private static JsonObject readManifest(Path path) throws IOException {
+        try {
+            return JsonParser.parseString(Files.readString(path)).getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new IOException("Instantánea corrupta: " + path, e);
+        }
+    }
+
+    private static Map<String, FileState> loadIndex(Path indexFile) {
+        if (!Files.exists(indexFile)) {
+            return new LinkedHashMap<>();
+        }
+        try {
+            return fromJson(JsonParser.parseString(Files.readString(indexFile)).getAsJsonObject());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warning("⚠️ Índice de instantáneas corrupto, se regenera: " + e.getMessage());
+            return new LinkedHashMap<>();
+        }
+    }
+
+    private static Map<String, FileState> fromJson(JsonObject json) {
+        Map<String, FileState> files = new LinkedHashMap<>();
+        for (Map.Entry<String, JsonElement> element : json.entrySet()) {
+            JsonObject entry = element.getValue().getAsJsonObject();
+            files.put(element.getKey(), new FileState(entry.get("size").getAsLong(),
+                    entry.get("modified").getAsLong(), entry.get("sha1").getAsString()));
+        }
+        return files;
+    }
+
+    private static JsonObject toJson(Map<String, FileState> files) {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, FileState> element : files.entrySet()) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("size", element.getValue().size());
+            entry.addProperty("modified", element.getValue().modified());
+            entry.addProperty("sha1", element.getValue().sha1());
+            json.add(element.getKey(), entry);
+        }
+        return json;
+    }
+
+    private static void writeAtomically(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
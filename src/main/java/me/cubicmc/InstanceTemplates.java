@@ -0,0 +1,215 @@
+package me.cubicmc;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Plantillas de instancia: un gameDir de referencia (mods, config,
+ * resourcepacks...) que se materializa en otros gameDir sin duplicar datos.
+ *
+ * Los ficheros que el juego nunca reescribe (jars, zips, texturas, sonidos)
+ * se enlazan con {@link LinkUtil} (hardlink o reflink) y el resto se copia.
+ * El almacén shared de la plantilla se comparte con un enlace simbólico, así
+ * que crear una instancia se reduce a operaciones de metadatos.
+ */
+public class InstanceTemplates {
+    private static final Logger LOGGER = Logger.getLogger(InstanceTemplates.class.getName());
+
+    // Contenido que el juego solo lee: se puede compartir entre instancias
+    private static final Set<String> IMMUTABLE_EXTENSIONS = Set.of(
+            "jar", "zip", "litemod", "png", "jpg", "ogg", "mp3", "ttf", "otf", "so", "dll", "dylib");
+
+    // Carpetas que el juego o los mods reescriben aunque contengan zips o imágenes
+    private static final Set<String> MUTABLE_DIRS = Set.of("config", "defaultconfigs", "saves");
+
+    // Datos propios de cada instancia que no se copian. El .lock del almacén tampoco:
+    // un hardlink compartiría el bloqueo entre la plantilla y la instancia
+    private static final Set<String> EXCLUDED = Set.of("logs", "crash-reports", "screenshots", ".neutron/traces",
+            "shared/.lock");
+
+    public record Report(int linked, int reflinked, int copied, int directories, long sharedBytes, long copiedBytes,
+                         boolean sharedStore, long millis) {
+    }
+
+    /**
+     * Crea una plantilla a partir de una instancia existente.
+     */
+    public static Report capture(Path instanceDir, Path templateDir, int threadCount)
+            throws IOException, InterruptedException {
+        return cloneTree(instanceDir, templateDir, false, threadCount);
+    }
+
+    /**
+     * Crea una instancia nueva en targetDir a partir de la plantilla. Si
+     * shareStore es true, targetDir/shared enlaza al almacén de la plantilla.
+     */
+    public static Report materialize(Path templateDir, Path targetDir, boolean shareStore, int threadCount)
+            throws IOException, InterruptedException {
+        return cloneTree(templateDir, targetDir, shareStore, threadCount);
+    }
+
+    private static Report cloneTree(Path sourceDir, Path targetDir, boolean shareStore, int threadCount)
+            throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        Path source = sourceDir.toAbsolutePath().normalize();
+        Path target = targetDir.toAbsolutePath().normalize();
+        if (!Files.isDirectory(source)) {
+            throw new IOException("La plantilla no existe: " + source);
+        }
+        if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+
+        // Se construye al lado y se renombra al final: nunca queda una instancia a medias
+        Path staging = target.resolveSibling("." + target.getFileName() + ".tmp-" + System.nanoTime());
+        AtomicInteger linked = new AtomicInteger();
+        AtomicInteger reflinked = new AtomicInteger();
+        AtomicInteger copied = new AtomicInteger();
+        AtomicLong sharedBytes = new AtomicLong();
+        AtomicLong copiedBytes = new AtomicLong();
+        int directories = 0;
+        boolean sharedStore = false;
+
+        try {
+            Path store = source.resolve("shared");
+            if (shareStore && Files.isDirectory(store) && !Files.isSymbolicLink(store)) {
+                Files.createDirectories(staging);
+                try {
+                    Files.createSymbolicLink(staging.resolve("shared"), store.toRealPath());
+                    sharedStore = true;
+                } catch (UnsupportedOperationException | IOException e) {
+                    // Windows sin permiso de enlaces simbólicos: se enlazan los ficheros uno a uno
+                    LOGGER.fine("No se pudo enlazar el almacén " + store + ": " + e.getMessage());
+                }
+            }
+
+            // Primero la estructura de directorios y los enlaces simbólicos, luego los ficheros en paralelo
+            List<Path[]> files = new ArrayList<>();
+            try (Stream<Path> paths = Files.walk(source)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    String relative = source.relativize(path).toString().replace('\\', '/');
+                    boolean inStore = relative.equals("shared") || relative.startsWith("shared/");
+                    if (isExcluded(relative) || (sharedStore && inStore)) {
+                        continue;
+                    }
+                    Path destination = staging.resolve(source.relativize(path));
+                    BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isSymbolicLink()) {
+                        Files.createDirectories(destination.getParent());
+                        Files.createSymbolicLink(destination, Files.readSymbolicLink(path));
+                    } else if (attrs.isDirectory()) {
+                        Files.createDirectories(destination);
+                        directories++;
+                    } else if (attrs.isRegularFile()) {
+                        files.add(new Path[]{path, destination});
+                    }
+                }
+            }
+
+            try (DownloadUtil.CloseableExecutorService ces =
+                         new DownloadUtil.CloseableExecutorService(Executors.newFixedThreadPool(threadCount))) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (Path[] pair : files) {
+                    futures.add(ces.get().submit(() -> {
+                        String relative = source.relativize(pair[0]).toString().replace('\\', '/');
+                        long size = Files.size(pair[0]);
+                        if (isImmutable(relative)) {
+                            switch (LinkUtil.linkOrCopy(pair[0], pair[1])) {
+                                case HARDLINK -> linked.incrementAndGet();
+                                case REFLINK -> reflinked.incrementAndGet();
+                                case COPY -> {
+                                    copied.incrementAndGet();
+                                    copiedBytes.addAndGet(size);
+                                    return null;
+                                }
+                            }
+                            sharedBytes.addAndGet(size);
+                        } else {
+                            // Se conservan las fechas: la caché de ModIndex se valida por tamaño y mtime
+                            Files.copy(pair[0], pair[1], StandardCopyOption.COPY_ATTRIBUTES);
+                            copied.incrementAndGet();
+                            copiedBytes.addAndGet(size);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof IOException io) {
+                            throw io;
+                        }
+                        throw new IOException(e.getCause());
+                    }
+                }
+            }
+
+            Files.createDirectories(staging);
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            deleteTree(staging);
+            throw e;
+        }
+
+        Report report = new Report(linked.get(), reflinked.get(), copied.get(), directories, sharedBytes.get(),
+                copiedBytes.get(), sharedStore, System.currentTimeMillis() - start);
+        LOGGER.info("📦 Instancia " + target + " creada desde " + source + " en " + report.millis() + " ms: "
+                + report.linked() + " hardlinks, " + report.reflinked() + " reflinks, " + report.copied()
+                + " copias (" + (report.copiedBytes() >> 10) + " KB copiados, " + (report.sharedBytes() >> 20)
+                + " MB compartidos)" + (sharedStore ? ", almacén compartido" : ""));
+        return report;
+    }
+
+    private static boolean isExcluded(String relative) {
+        for (String excluded : EXCLUDED) {
+            if (relative.equals(excluded) || relative.startsWith(excluded + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isImmutable(String relative) {
+        // El almacén es direccionado por contenido (objetos sin extensión) y solo se reemplaza por renombrado
+        if (relative.startsWith("shared/")) {
+            return true;
+        }
+        int slash = relative.indexOf('/');
+        if (slash > 0 && MUTABLE_DIRS.contains(relative.substring(0, slash))) {
+            return false;
+        }
+        int dot = relative.lastIndexOf('.');
+        return dot > relative.lastIndexOf('/')
+                && IMMUTABLE_EXTENSIONS.contains(relative.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        // Files.walk no sigue el enlace del almacén compartido: solo se borra el enlace
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
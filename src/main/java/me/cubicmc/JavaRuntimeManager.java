@@ -0,0 +1,350 @@
+package me.cubicmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.tukaani.xz.LZMAInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Instala los runtimes de Java que publica Mojang en gameDir/shared/runtimes.
+ * Los ficheros se guardan una sola vez por SHA-1 en shared/runtimes/objects y
+ * se enlazan en cada runtime, de modo que varios runtimes comparten datos.
+ */
+public class JavaRuntimeManager {
+    private static final Logger LOGGER = Logger.getLogger(JavaRuntimeManager.class.getName());
+
+    private static volatile String runtimeIndexUrl =
+            "https://launchermeta.mojang.com/v1/products/java-runtime/2ec0cc96c44e5a76b9c8b7c39df7210883d12871/all.json";
+
+    // Componente que usan las versiones antiguas sin "javaVersion"
+    private static final String LEGACY_COMPONENT = "jre-legacy";
+    private static final String MARKER_FILE = ".manifest-sha1";
+
+    /**
+     * Permite usar un espejo del índice de runtimes de Mojang.
+     */
+    public static void setRuntimeIndexUrl(String url) {
+        runtimeIndexUrl = url;
+    }
+
+    /**
+     * Devuelve el ejecutable de Java que pide la versión, instalándolo si hace falta.
+     */
+    public static String resolveJava(JsonObject versionData, JsonObject baseVersionData, String gameDir,
+                                     int threadCount) throws IOException, InterruptedException {
+        return resolveJava(getComponent(versionData, baseVersionData), gameDir, threadCount);
+    }
+
+    /**
+     * Devuelve el ejecutable del componente indicado, instalándolo si hace falta.
+     * En plataformas sin runtimes de Mojang (Linux ARM) usa el Java del sistema.
+     */
+    public static String resolveJava(String component, String gameDir, int threadCount)
+            throws IOException, InterruptedException {
+        if (getPlatform() == null) {
+            String fallback = systemJava();
+            LOGGER.warning("⚠️ Mojang no publica runtimes de Java para " + System.getProperty("os.name") + " "
+                    + System.getProperty("os.arch") + ", se usa " + fallback + " (la versión pide " + component + ")");
+            return fallback;
+        }
+        Path runtimeDir = installRuntime(component, threadCount, gameDir);
+        return getJavaExecutable(runtimeDir).toString();
+    }
+
+    /**
+     * Java de JAVA_HOME o, si no hay, el que ejecuta el launcher.
+     */
+    static String systemJava() {
+        String javaHome = System.getenv("JAVA_HOME");
+        if (javaHome != null && !javaHome.isBlank()) {
+            Path java = getJavaExecutable(Paths.get(javaHome));
+            if (Files.isExecutable(java)) {
+                return java.toString();
+            }
+        }
+        return getJavaExecutable(Paths.get(System.getProperty("java.home"))).toString();
+    }
+
+    /**
+     * Lee javaVersion.component del JSON de la versión o de su versión base.
+     */
+    public static String getComponent(JsonObject versionData, JsonObject baseVersionData) {
+        for (JsonObject data : new JsonObject[]{versionData, baseVersionData}) {
+            if (data != null && data.has("javaVersion")
+                    && data.getAsJsonObject("javaVersion").has("component")) {
+                return data.getAsJsonObject("javaVersion").get("component").getAsString();
+            }
+        }
+        return LEGACY_COMPONENT;
+    }
+
+    public static Path getRuntimesDir(String gameDir) {
+        return Paths.get(gameDir, "shared", "runtimes").toAbsolutePath().normalize();
+    }
+
+    /**
+     * Instala (o verifica) el componente indicado y devuelve su directorio.
+     */
+    public static Path installRuntime(String component, int threadCount, String gameDir)
+            throws IOException, InterruptedException {
+        try (var _ = StoreLock.shared(gameDir)) {
+            return doInstallRuntime(component, threadCount, gameDir);
+        }
+    }
+
+    private static Path doInstallRuntime(String component, int threadCount, String gameDir)
+            throws IOException, InterruptedException {
+        String platform = getPlatform();
+        if (platform == null) {
+            throw new IOException("Mojang no publica runtimes de Java para " + System.getProperty("os.name") + " "
+                    + System.getProperty("os.arch"));
+        }
+        JsonObject index = HttpUtils.getJson(runtimeIndexUrl);
+        if (index.has("Error")) {
+            throw new IOException("No se pudo obtener el índice de runtimes de Java: " + index.get("Error").getAsString());
+        }
+        if (!index.has(platform) || !index.getAsJsonObject(platform).has(component)) {
+            throw new IOException("Runtime " + component + " no disponible para la plataforma " + platform);
+        }
+        JsonArray entries = index.getAsJsonObject(platform).getAsJsonArray(component);
+        if (entries.size() == 0) {
+            throw new IOException("Runtime " + component + " no disponible para la plataforma " + platform);
+        }
+
+        JsonObject manifestMeta = entries.get(0).getAsJsonObject().getAsJsonObject("manifest");
+        String manifestSha1 = manifestMeta.get("sha1").getAsString();
+
+        Path runtimesDir = getRuntimesDir(gameDir);
+        Path runtimeDir = runtimesDir.resolve(component);
+        Path marker = runtimeDir.resolve(MARKER_FILE);
+
+        // Ya instalado con el mismo manifiesto
+        if (Files.exists(marker)
+                && Files.readString(marker, StandardCharsets.UTF_8).trim().equals(manifestSha1)
+                && Files.isRegularFile(getJavaExecutable(runtimeDir))) {
+            LOGGER.info("✅ Runtime " + component + " ya instalado: " + runtimeDir);
+            return runtimeDir;
+        }
+
+        JsonObject manifest = HttpUtils.getJson(manifestMeta.get("url").getAsString());
+        if (manifest.has("Error")) {
+            throw new IOException("No se pudo obtener el manifiesto del runtime " + component);
+        }
+        JsonObject files = manifest.getAsJsonObject("files");
+        Path objectsDir = runtimesDir.resolve("objects");
+
+        LOGGER.info("⬇️ Instalando runtime " + component + " (" + platform + ", " + files.size() + " entradas)");
+
+        List<Map.Entry<String, JsonElement>> links = new ArrayList<>();
+        AtomicInteger downloaded = new AtomicInteger(0);
+        AtomicInteger reused = new AtomicInteger(0);
+        AtomicInteger failed = new AtomicInteger(0);
+        AtomicLong downloadedBytes = new AtomicLong(0);
+
+        // 1) Directorios primero, para que las tareas no compitan creándolos
+        for (Map.Entry<String, JsonElement> entry : files.entrySet()) {
+            JsonObject file = entry.getValue().getAsJsonObject();
+            String type = file.get("type").getAsString();
+            if ("directory".equals(type)) {
+                Files.createDirectories(runtimeDir.resolve(entry.getKey()));
+            } else if ("link".equals(type)) {
+                links.add(entry);
+            }
+        }
+
+        // 2) Ficheros en paralelo: descargar al almacén por SHA-1 y enlazar
+        try (DownloadUtil.CloseableExecutorService ces =
+                     new DownloadUtil.CloseableExecutorService(Executors.newFixedThreadPool(threadCount))) {
+            ExecutorService executor = ces.get();
+
+            // Agrupar por SHA-1: cada objeto se descarga una vez aunque aparezca en varias rutas
+            Map<String, List<Map.Entry<String, JsonElement>>> bySha1 = new LinkedHashMap<>();
+            for (Map.Entry<String, JsonElement> entry : files.entrySet()) {
+                JsonObject file = entry.getValue().getAsJsonObject();
+                if ("file".equals(file.get("type").getAsString())) {
+                    String sha1 = file.getAsJsonObject("downloads").getAsJsonObject("raw").get("sha1").getAsString();
+                    bySha1.computeIfAbsent(sha1, k -> new ArrayList<>()).add(entry);
+                }
+            }
+
+            for (Map.Entry<String, List<Map.Entry<String, JsonElement>>> group : bySha1.entrySet()) {
+                String sha1 = group.getKey();
+                JsonObject downloads = group.getValue().get(0).getValue().getAsJsonObject().getAsJsonObject("downloads");
+                long size = downloads.getAsJsonObject("raw").get("size").getAsLong();
+                Path object = objectsDir.resolve(sha1.substring(0, 2)).resolve(sha1);
+
+                executor.submit(() -> {
+                    try {
+                        if (Files.exists(object) && Files.size(object) == size) {
+                            reused.incrementAndGet();
+                        } else {
+                            downloadedBytes.addAndGet(fetchObject(downloads, object));
+                            downloaded.incrementAndGet();
+                        }
+                        for (Map.Entry<String, JsonElement> entry : group.getValue()) {
+                            JsonObject file = entry.getValue().getAsJsonObject();
+                            Path target = runtimeDir.resolve(entry.getKey());
+                            if (!LinkUtil.isSameFile(object, target)) {
+                                LinkUtil.linkOrCopy(object, target);
+                            }
+                            boolean executable = file.has("executable") && file.get("executable").getAsBoolean();
+                            if (executable && !target.toFile().setExecutable(true, false)) {
+                                LOGGER.fine("No se pudo marcar como ejecutable: " + target);
+                            }
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        LOGGER.log(Level.SEVERE, "❌ Error instalando " + group.getValue().get(0).getKey()
+                                + " del runtime " + component, e);
+                        failed.incrementAndGet();
+                        if (e instanceof InterruptedException) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+        }
+
+        if (failed.get() > 0) {
+            throw new IOException("No se pudieron instalar " + failed.get() + " ficheros del runtime " + component);
+        }
+
+        // 3) Enlaces simbólicos, cuando los ficheros a los que apuntan ya existen
+        for (Map.Entry<String, JsonElement> entry : links) {
+            Path link = runtimeDir.resolve(entry.getKey());
+            String target = entry.getValue().getAsJsonObject().get("target").getAsString();
+            createSymlink(link, target);
+        }
+
+        Files.writeString(marker, manifestSha1, StandardCharsets.UTF_8);
+        LOGGER.info("✅ Runtime " + component + " instalado en " + runtimeDir + ": "
+                + downloaded.get() + " descargados (" + (downloadedBytes.get() >> 20) + " MB), "
+                + reused.get() + " reutilizados");
+        return runtimeDir;
+    }
+
+    /**
+     * Descarga un fichero del runtime al almacén de objetos. Prefiere la variante
+     * LZMA, que se descomprime en streaming mientras se calcula el SHA-1; si falla
+     * se recurre a la descarga sin comprimir. Devuelve los bytes transferidos.
+     */
+    private static long fetchObject(JsonObject downloads, Path object) throws IOException, InterruptedException {
+        JsonObject raw = downloads.getAsJsonObject("raw");
+        String sha1 = raw.get("sha1").getAsString();
+        Files.createDirectories(object.getParent());
+        Path temp = object.resolveSibling(sha1 + ".part" + Thread.currentThread().threadId());
+
+        try {
+            if (downloads.has("lzma")) {
+                JsonObject lzma = downloads.getAsJsonObject("lzma");
+                try {
+                    String actual = fetchLzma(lzma.get("url").getAsString(), temp);
+                    if (actual.equalsIgnoreCase(sha1)) {
+                        Files.move(temp, object, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        return lzma.get("size").getAsLong();
+                    }
+                    LOGGER.warning("❌ SHA-1 incorrecto tras descomprimir LZMA de " + object.getFileName()
+                            + ", usando la versión sin comprimir");
+                } catch (IOException e) {
+                    LOGGER.warning("❌ Error con la variante LZMA: " + e.getMessage() + ", usando la versión sin comprimir");
+                }
+            }
+
+            DownloadUtil.downloadFile(raw.get("url").getAsString(), temp.toString(), sha1);
+            Files.move(temp, object, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return raw.get("size").getAsLong();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String fetchLzma(String url, Path dest) throws IOException, InterruptedException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-1 no disponible", e);
+        }
+        try (InputStream in = new DigestInputStream(
+                new LZMAInputStream(new BufferedInputStream(DownloadUtil.openStream(url), 64 * 1024)), digest)) {
+            Files.copy(in, dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return DownloadUtil.toHex(digest.digest());
+    }
+
+    private static void createSymlink(Path link, String target) throws IOException {
+        Files.createDirectories(link.getParent());
+        Path resolved = link.getParent().resolve(target).normalize();
+        try {
+            if (Files.isSymbolicLink(link) && Files.readSymbolicLink(link).toString().equals(target)) {
+                return;
+            }
+            Files.deleteIfExists(link);
+            Files.createSymbolicLink(link, Paths.get(target));
+        } catch (UnsupportedOperationException | IOException e) {
+            // Windows sin permisos de enlace simbólico: copiar el destino
+            if (Files.isRegularFile(resolved)) {
+                Files.copy(resolved, link, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                LOGGER.warning("⚠️ No se pudo crear el enlace " + link + " -> " + target);
+            }
+        }
+    }
+
+    /**
+     * Ruta del ejecutable java dentro de un runtime de Mojang.
+     */
+    public static Path getJavaExecutable(Path runtimeDir) {
+        String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+        if (os.contains("win")) {
+            return runtimeDir.resolve("bin").resolve("java.exe");
+        }
+        if (os.contains("mac")) {
+            return runtimeDir.resolve("jre.bundle").resolve("Contents").resolve("Home").resolve("bin").resolve("java");
+        }
+        return runtimeDir.resolve("bin").resolve("java");
+    }
+
+    /**
+     * Clave de plataforma del índice de runtimes de Mojang, o null si el índice
+     * no tiene runtimes para este equipo (Linux ARM: "linux" es solo x64).
+     */
+    static String getPlatform() {
+        String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+        String arch = System.getProperty("os.arch").toLowerCase(Locale.ROOT);
+        boolean arm = arch.contains("aarch64") || arch.contains("arm");
+        boolean x86 = arch.equals("x86") || arch.equals("i386") || arch.equals("i686");
+        if (os.contains("win")) {
+            return arm ? "windows-arm64" : x86 ? "windows-x86" : "windows-x64";
+        }
+        if (os.contains("mac")) {
+            return arm ? "mac-os-arm64" : "mac-os";
+        }
+        if (arm) {
+            return null;
+        }
+        return x86 ? "linux-i386" : "linux";
+    }
+}
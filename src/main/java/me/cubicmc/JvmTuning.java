@@ -0,0 +1,287 @@
+package me.cubicmc;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Perfiles de ajuste de la JVM del juego. Cada perfil elige el GC, el tamaño
+ * de región, el pre-touch del heap, las páginas grandes y el número de hilos
+ * a partir de los núcleos, la RAM del equipo y la versión de Java destino.
+ */
+public class JvmTuning {
+
+    private static final Logger LOGGER = LogManager.getLogger(JvmTuning.class);
+
+    // Resultados de las comprobaciones contra cada ejecutable de Java
+    private static final Map<String, Integer> JAVA_VERSIONS = new ConcurrentHashMap<>();
+    private static final Map<String, Boolean> VALIDATED_FLAGS = new ConcurrentHashMap<>();
+
+    public enum Profile {
+        /** Sin flags adicionales, solo -Xms/-Xmx. */
+        NONE,
+        /** G1 con regiones y hilos calculados; buen punto de partida. */
+        BALANCED,
+        /** Parallel GC: máximo rendimiento a costa de pausas más largas. */
+        THROUGHPUT,
+        /** ZGC generacional o Shenandoah: pausas de pocos milisegundos. */
+        LOW_PAUSE,
+        /** Heap compacto que devuelve memoria al sistema. */
+        LOW_MEMORY
+    }
+
+    /**
+     * Hardware del equipo y versión del runtime de Java que ejecutará el juego.
+     */
+    public record Host(int cores, long totalMemory, int javaMajor, String os) {
+
+        public static Host detect(String javaPath) {
+            return new Host(Runtime.getRuntime().availableProcessors(), detectTotalMemory(),
+                    detectJavaMajor(javaPath), System.getProperty("os.name").toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Calcula los flags del perfil para el host dado y los valida contra la JVM
+     * destino. Los flags que la JVM rechaza se descartan con un aviso.
+     */
+    public static List<String> flagsFor(Profile profile, String javaPath, String minRam, String maxRam) {
+        return flagsFor(profile, javaPath, minRam, maxRam, Host.detect(javaPath));
+    }
+
+    public static List<String> flagsFor(Profile profile, String javaPath, String minRam, String maxRam, Host host) {
+        if (profile == Profile.NONE) {
+            return List.of();
+        }
+
+        long maxHeap = parseMemory(maxRam);
+        long minHeap = parseMemory(minRam);
+        LOGGER.info("Perfil JVM {}: {} núcleos, {} MB de RAM, Java {}, heap máximo {} MB",
+                profile, host.cores(), host.totalMemory() >> 20, host.javaMajor(), maxHeap >> 20);
+
+        if (host.totalMemory() > 0 && maxHeap > host.totalMemory() * 8 / 10) {
+            LOGGER.warn("El heap máximo ({} MB) supera el 80% de la RAM del equipo ({} MB)",
+                    maxHeap >> 20, host.totalMemory() >> 20);
+        }
+
+        List<String> flags = new ArrayList<>();
+        flags.addAll(pickCollector(profile, javaPath, maxHeap, host));
+        flags.addAll(threadFlags(profile, host));
+
+        // Pre-touch solo si el heap inicial cabe holgadamente en memoria
+        if (profile != Profile.LOW_MEMORY && minHeap > 0 && host.totalMemory() > 0
+                && minHeap <= host.totalMemory() / 2) {
+            flags.add("-XX:+AlwaysPreTouch");
+        }
+
+        // Páginas grandes transparentes: no requieren configuración previa del sistema
+        if (profile != Profile.LOW_MEMORY && host.os().contains("linux")) {
+            flags.add("-XX:+UseTransparentHugePages");
+        }
+
+        if (profile == Profile.LOW_MEMORY) {
+            flags.add("-XX:MinHeapFreeRatio=10");
+            flags.add("-XX:MaxHeapFreeRatio=30");
+            flags.add("-XX:+UseStringDeduplication");
+            if (host.javaMajor() >= 12) {
+                flags.add("-XX:G1PeriodicGCInterval=15000");
+            }
+        }
+
+        List<String> valid = validate(javaPath, flags);
+        LOGGER.info("Flags JVM del perfil {}: {}", profile, valid);
+        return valid;
+    }
+
+    private static List<String> pickCollector(Profile profile, String javaPath, long maxHeap, Host host) {
+        switch (profile) {
+            case THROUGHPUT:
+                return List.of("-XX:+UseParallelGC");
+            case LOW_PAUSE:
+                // ZGC generacional es el modo por defecto desde Java 23; en 21 y 22 hay que pedirlo
+                if (host.javaMajor() >= 23) {
+                    if (isSupported(javaPath, List.of("-XX:+UseZGC"))) {
+                        return List.of("-XX:+UseZGC");
+                    }
+                } else if (host.javaMajor() >= 21) {
+                    List<String> zgc = List.of("-XX:+UseZGC", "-XX:+ZGenerational");
+                    if (isSupported(javaPath, zgc)) {
+                        return zgc;
+                    }
+                }
+                if (isSupported(javaPath, List.of("-XX:+UseShenandoahGC"))) {
+                    return List.of("-XX:+UseShenandoahGC");
+                }
+                LOGGER.warn("La JVM destino no soporta ZGC generacional ni Shenandoah, usando G1 con pausas cortas");
+                return List.of("-XX:+UseG1GC", "-XX:MaxGCPauseMillis=50",
+                        "-XX:G1HeapRegionSize=" + (regionSize(maxHeap) >> 20) + "M");
+            case LOW_MEMORY:
+                if (host.cores() <= 2 && maxHeap <= 2L << 30) {
+                    return List.of("-XX:+UseSerialGC");
+                }
+                return List.of("-XX:+UseG1GC");
+            default: // BALANCED
+                return List.of("-XX:+UseG1GC", "-XX:MaxGCPauseMillis=130",
+                        "-XX:G1HeapRegionSize=" + (regionSize(maxHeap) >> 20) + "M");
+        }
+    }
+
+    private static List<String> threadFlags(Profile profile, Host host) {
+        int cores = Math.max(1, host.cores());
+        // Dejar al menos un núcleo libre para el hilo de render
+        int parallel = cores <= 2 ? 1 : cores <= 8 ? cores - 1 : 8 + (cores - 8) * 5 / 8;
+        int concurrent = Math.max(1, parallel / 4);
+
+        if (profile == Profile.LOW_MEMORY) {
+            parallel = Math.min(parallel, 2);
+            concurrent = 1;
+        }
+
+        List<String> flags = new ArrayList<>();
+        flags.add("-XX:ParallelGCThreads=" + parallel);
+        if (profile != Profile.THROUGHPUT) {
+            flags.add("-XX:ConcGCThreads=" + concurrent);
+        }
+        return flags;
+    }
+
+    /**
+     * Tamaño de región de G1: potencia de dos entre 1 y 32 MB que deja unas
+     * 2048 regiones en el heap.
+     */
+    static long regionSize(long maxHeap) {
+        long target = Math.max(1L << 20, maxHeap / 2048);
+        long size = Long.highestOneBit(target);
+        return Math.min(size, 32L << 20);
+    }
+
+    /**
+     * Convierte tamaños con el formato de -Xmx ("2G", "512m", "1048576") a bytes.
+     */
+    static long parseMemory(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        long multiplier = 1;
+        char unit = v.charAt(v.length() - 1);
+        switch (unit) {
+            case 'k': multiplier = 1L << 10; break;
+            case 'm': multiplier = 1L << 20; break;
+            case 'g': multiplier = 1L << 30; break;
+            case 't': multiplier = 1L << 40; break;
+            default: break;
+        }
+        if (multiplier != 1) {
+            v = v.substring(0, v.length() - 1);
+        }
+        try {
+            return Long.parseLong(v) * multiplier;
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Tamaño de memoria no reconocido: {}", value);
+            return 0;
+        }
+    }
+
+    private static long detectTotalMemory() {
+        try {
+            return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                    .getTotalMemorySize();
+        } catch (ClassCastException | LinkageError e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Obtiene la versión mayor del ejecutable de Java destino, que puede no ser
+     * el mismo runtime que ejecuta el launcher.
+     */
+    static int detectJavaMajor(String javaPath) {
+        return JAVA_VERSIONS.computeIfAbsent(javaPath, path -> {
+            try {
+                String output = run(List.of(path, "-XshowSettings:properties", "-version"));
+                for (String line : output.split("\\R")) {
+                    String trimmed = line.trim();
+                    if (trimmed.startsWith("java.specification.version")) {
+                        String spec = trimmed.substring(trimmed.indexOf('=') + 1).trim();
+                        return spec.startsWith("1.") ? Integer.parseInt(spec.substring(2)) : Integer.parseInt(spec);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.warn("No se pudo detectar la versión de Java de {}: {}", path, e.getMessage());
+            }
+            return Runtime.version().feature();
+        });
+    }
+
+    /**
+     * Comprueba los flags contra la JVM destino. Primero prueba el conjunto
+     * completo y, si falla, cada flag por separado.
+     */
+    static List<String> validate(String javaPath, List<String> flags) {
+        if (flags.isEmpty() || isSupported(javaPath, flags)) {
+            return flags;
+        }
+        List<String> valid = new ArrayList<>();
+        for (String flag : flags) {
+            if (isSupported(javaPath, List.of(flag))) {
+                valid.add(flag);
+            } else {
+                LOGGER.warn("La JVM destino rechaza el flag {}, se omite", flag);
+            }
+        }
+        return valid;
+    }
+
+    private static boolean isSupported(String javaPath, List<String> flags) {
+        String key = javaPath + "\u0000" + String.join(" ", flags);
+        return VALIDATED_FLAGS.computeIfAbsent(key, k -> {
+            List<String> command = new ArrayList<>();
+            command.add(javaPath);
+            command.addAll(flags);
+            command.add("-version");
+            try {
+                Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                drain(process.getInputStream());
+                if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    return false;
+                }
+                return process.exitValue() == 0;
+            } catch (IOException e) {
+                LOGGER.warn("No se pudieron validar los flags {}: {}", flags, e.getMessage());
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+    }
+
+    private static String run(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = drain(process.getInputStream());
+        try {
+            process.waitFor(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return output;
+    }
+
+    private static String drain(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
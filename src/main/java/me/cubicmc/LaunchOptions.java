@@ -0,0 +1,161 @@
+package me.cubicmc;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Opciones adicionales para {@link Launcher#launch}. Los valores por defecto
+ * reproducen el comportamiento clásico del launcher.
+ */
+public class LaunchOptions {
+
+    private JvmTuning.Profile tuningProfile = JvmTuning.Profile.NONE;
+    private boolean prewarm = false;
+    private long prewarmTimeoutMillis = 10_000;
+    private boolean checkMods = true;
+    private boolean abortOnModProblems = false;
+    private long prepareDeadlineMillis = 0;
+    private boolean trace = false;
+    private ResourcePolicy resourcePolicy;
+    private boolean telemetry = false;
+    private boolean autoHeap = false;
+    private Consumer<Process> spawnListener;
+
+    public JvmTuning.Profile getTuningProfile() {
+        return tuningProfile;
+    }
+
+    /**
+     * Perfil de ajuste de la JVM del juego (GC, regiones, hilos...).
+     */
+    public LaunchOptions tuningProfile(JvmTuning.Profile tuningProfile) {
+        this.tuningProfile = Objects.requireNonNull(tuningProfile, "tuningProfile");
+        return this;
+    }
+
+    public boolean isPrewarm() {
+        return prewarm;
+    }
+
+    public long getPrewarmTimeoutMillis() {
+        return prewarmTimeoutMillis;
+    }
+
+    /**
+     * Precarga los jars del classpath y los natives en la caché de páginas
+     * mientras se prepara el comando. Útil en discos lentos o volúmenes de red.
+     */
+    public LaunchOptions prewarm(boolean prewarm) {
+        this.prewarm = prewarm;
+        return this;
+    }
+
+    /**
+     * Tiempo máximo que se espera a la precarga antes de lanzar el juego.
+     */
+    public LaunchOptions prewarmTimeoutMillis(long prewarmTimeoutMillis) {
+        this.prewarmTimeoutMillis = prewarmTimeoutMillis;
+        return this;
+    }
+
+    public boolean isCheckMods() {
+        return checkMods;
+    }
+
+    public boolean isAbortOnModProblems() {
+        return abortOnModProblems;
+    }
+
+    /**
+     * Analiza la carpeta mods antes de lanzar (duplicados, dependencias, versión de Minecraft).
+     */
+    public LaunchOptions checkMods(boolean checkMods) {
+        this.checkMods = checkMods;
+        return this;
+    }
+
+    /**
+     * Cancela el lanzamiento si el análisis de mods encuentra problemas.
+     */
+    public LaunchOptions abortOnModProblems(boolean abortOnModProblems) {
+        this.abortOnModProblems = abortOnModProblems;
+        return this;
+    }
+
+    public long getPrepareDeadlineMillis() {
+        return prepareDeadlineMillis;
+    }
+
+    /**
+     * Tiempo máximo para las etapas de preparación (runtime, classpath, natives,
+     * argumentos...). Si se supera, el lanzamiento se cancela. 0 desactiva el límite.
+     */
+    public LaunchOptions prepareDeadlineMillis(long prepareDeadlineMillis) {
+        this.prepareDeadlineMillis = prepareDeadlineMillis;
+        return this;
+    }
+
+    public boolean isTrace() {
+        return trace;
+    }
+
+    /**
+     * Registra la línea de tiempo del lanzamiento (fases del launcher e hitos
+     * del juego leídos de su salida) y la guarda en gameDir/.neutron/traces.
+     */
+    public LaunchOptions trace(boolean trace) {
+        this.trace = trace;
+        return this;
+    }
+
+    public ResourcePolicy getResourcePolicy() {
+        return resourcePolicy;
+    }
+
+    /**
+     * Núcleos, prioridades y límites cgroup del proceso del juego (solo Linux). null no aplica ninguno.
+     */
+    public LaunchOptions resourcePolicy(ResourcePolicy resourcePolicy) {
+        this.resourcePolicy = resourcePolicy;
+        return this;
+    }
+
+    public boolean isTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * Registra el log de GC y la memoria residente del juego durante la partida
+     * y guarda un resumen y una recomendación de heap en gameDir/.neutron/telemetry.json.
+     */
+    public LaunchOptions telemetry(boolean telemetry) {
+        this.telemetry = telemetry;
+        return this;
+    }
+
+    public boolean isAutoHeap() {
+        return autoHeap;
+    }
+
+    /**
+     * Sustituye minRam, maxRam y, si la hay, el perfil de ajuste por la última
+     * recomendación de la telemetría de la instancia.
+     */
+    public LaunchOptions autoHeap(boolean autoHeap) {
+        this.autoHeap = autoHeap;
+        return this;
+    }
+
+    public Consumer<Process> getSpawnListener() {
+        return spawnListener;
+    }
+
+    /**
+     * Se llama con el proceso del juego en cuanto arranca, antes de esperar a
+     * que termine. {@link Launcher#launch} sigue bloqueando hasta la salida.
+     */
+    public LaunchOptions onSpawn(Consumer<Process> spawnListener) {
+        this.spawnListener = spawnListener;
+        return this;
+    }
+}
@@ -0,0 +1,225 @@
+package me.cubicmc;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Traza de un lanzamiento: marca las fases del launcher (preparación, spawn
+ * del proceso) y detecta hitos del juego leyendo su salida (primera línea,
+ * inicio del loader, LWJGL, "Setting user", fin de la recarga de recursos).
+ * Al terminar se exporta un JSON por lanzamiento en gameDir/.neutron/traces
+ * para comparar versiones, loaders y perfiles de ajuste.
+ */
+public final class LaunchTracer {
+    private static final Logger LOGGER = LogManager.getLogger(LaunchTracer.class);
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    /**
+     * Hito detectado en la salida del juego. Solo cuenta la primera aparición.
+     */
+    private record Milestone(String name, Pattern pattern) {
+    }
+
+    private static final List<Milestone> MILESTONES = List.of(
+            // Fabric: "Loading 57 mods:"; Forge/NeoForge: ModLauncher arranca el target
+            new Milestone("loader", Pattern.compile("Loading \\d+ mods|ModLauncher running|Launching target '")),
+            new Milestone("setting-user", Pattern.compile("Setting user: ")),
+            // 1.13+: "Backend library: LWJGL version 3.x"; legacy: "LWJGL Version: 2.x"
+            new Milestone("lwjgl", Pattern.compile("(?i)LWJGL version")),
+            new Milestone("resource-reload", Pattern.compile("Reloading ResourceManager")),
+            // El motor de sonido arranca al final de la primera recarga de recursos
+            new Milestone("resources-loaded", Pattern.compile("Sound engine started")));
+
+    /**
+     * Evento de la línea de tiempo, en milisegundos desde el inicio del lanzamiento.
+     */
+    public record Event(String name, long millis, String detail) {
+    }
+
+    private final long startNanos;
+    private final LocalDateTime startTime = LocalDateTime.now();
+    private final Map<String, String> labels = new LinkedHashMap<>();
+    private final Map<String, Long> stages = new LinkedHashMap<>();
+    private final List<Event> events = new ArrayList<>();
+    private final List<Thread> pipes = new ArrayList<>();
+
+    public LaunchTracer() {
+        this(System.nanoTime());
+    }
+
+    /**
+     * @param startNanos instante de inicio del lanzamiento según {@link System#nanoTime()}
+     */
+    public LaunchTracer(long startNanos) {
+        this.startNanos = startNanos;
+        mark("start");
+    }
+
+    /**
+     * Etiqueta del lanzamiento (versión, loader, perfil...) que se guarda con la traza.
+     */
+    public synchronized LaunchTracer label(String key, Object value) {
+        if (value != null) {
+            labels.put(key, String.valueOf(value));
+        }
+        return this;
+    }
+
+    public void mark(String name) {
+        mark(name, null);
+    }
+
+    public synchronized void mark(String name, String detail) {
+        events.add(new Event(name, (System.nanoTime() - startNanos) / 1_000_000, detail));
+    }
+
+    /**
+     * Duraciones de las etapas de preparación, tal como las mide el launcher.
+     */
+    public synchronized void stages(Map<String, Long> times) {
+        stages.putAll(times);
+    }
+
+    public synchronized List<Event> events() {
+        return List.copyOf(events);
+    }
+
+    private synchronized boolean seen(String name) {
+        return events.stream().anyMatch(e -> e.name().equals(name));
+    }
+
+    /**
+     * Copia la salida del proceso a out en un hilo propio y marca los hitos que encuentre.
+     */
+    public void pipe(InputStream in, PrintStream out, String streamName) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    out.println(line);
+                    inspect(line);
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Salida {} del juego cerrada: {}", streamName, e.getMessage());
+            }
+        }, "launch-trace-" + streamName);
+        thread.setDaemon(true);
+        synchronized (this) {
+            pipes.add(thread);
+        }
+        thread.start();
+    }
+
+    private synchronized void inspect(String line) {
+        if (!seen("first-output")) {
+            mark("first-output");
+        }
+        for (Milestone milestone : MILESTONES) {
+            if (!seen(milestone.name()) && milestone.pattern().matcher(line).find()) {
+                mark(milestone.name(), line.length() > 200 ? line.substring(0, 200) : line);
+            }
+        }
+    }
+
+    /**
+     * Espera a que se vacíe la salida del proceso, marca el fin y escribe la
+     * traza en gameDir/.neutron/traces. Devuelve la ruta del fichero.
+     */
+    public Path finish(String gameDir, int exitCode) throws IOException, InterruptedException {
+        List<Thread> threads;
+        synchronized (this) {
+            threads = List.copyOf(pipes);
+        }
+        for (Thread thread : threads) {
+            thread.join(2_000);
+        }
+        mark("exit", String.valueOf(exitCode));
+
+        JsonObject trace = toJson();
+        trace.addProperty("exitCode", exitCode);
+        String version = labels.getOrDefault("version", "unknown").replaceAll("[^A-Za-z0-9._-]", "_");
+        Path dir = Paths.get(gameDir, ".neutron", "traces");
+        Files.createDirectories(dir);
+        Path file = dir.resolve(FILE_TIME.format(startTime) + "-" + version + ".json");
+        Files.writeString(file, new GsonBuilder().setPrettyPrinting().create().toJson(trace));
+
+        StringBuilder summary = new StringBuilder();
+        for (Event event : events()) {
+            if (!event.name().equals("start")) {
+                summary.append(summary.length() == 0 ? "" : ", ").append(event.name()).append('=')
+                        .append(event.millis()).append(" ms");
+            }
+        }
+        LOGGER.info("Traza del lanzamiento: {}", summary);
+        LOGGER.info("Traza guardada en {}", file);
+        return file;
+    }
+
+    synchronized JsonObject toJson() {
+        JsonObject trace = new JsonObject();
+        trace.addProperty("started", startTime.toString());
+        JsonObject labelsJson = new JsonObject();
+        labels.forEach(labelsJson::addProperty);
+        trace.add("labels", labelsJson);
+        JsonObject stagesJson = new JsonObject();
+        stages.forEach(stagesJson::addProperty);
+        trace.add("stages", stagesJson);
+        JsonArray timeline = new JsonArray();
+        for (Event event : events) {
+            JsonObject item = new JsonObject();
+            item.addProperty("name", event.name());
+            item.addProperty("millis", event.millis());
+            if (event.detail() != null) {
+                item.addProperty("detail", event.detail());
+            }
+            timeline.add(item);
+        }
+        trace.add("timeline", timeline);
+        return trace;
+    }
+
+    /**
+     * Lee las trazas guardadas de gameDir, de la más antigua a la más reciente.
+     */
+    public static List<JsonObject> readTraces(String gameDir) throws IOException {
+        Path dir = Paths.get(gameDir, ".neutron", "traces");
+        List<JsonObject> traces = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return traces;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(p -> p.toString().endsWith(".json")).sorted().toList()) {
+                try (Reader reader = Files.newBufferedReader(file)) {
+                    traces.add(JsonParser.parseReader(reader).getAsJsonObject());
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Traza ilegible {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        return traces;
+    }
+}
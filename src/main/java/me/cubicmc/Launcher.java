@@ -13,11 +13,45 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class Launcher {
 
     private static final Logger LOGGER = LogManager.getLogger(Launcher.class);
 
+    // Hilos para instalar el runtime de Java gestionado cuando no se indica javaPath
+    private static final int RUNTIME_THREADS = 8;
+    // Hilos de lectura para la precarga del classpath
+    private static final int PREWARM_THREADS = 8;
+    // Hilos para leer los metadatos de los mods que no están en el índice
+    private static final int MOD_SCAN_THREADS = 8;
+    // Hilos para las etapas de preparación que se ejecutan en paralelo
+    private static final int LAUNCH_STAGE_THREADS = 6;
+
+    // JSON de versión ya parseados, validados por fecha de modificación y tamaño
+    private record CachedJson(String stamp, JsonObject json) {
+    }
+
+    private static final Map<Path, CachedJson> JSON_CACHE = new ConcurrentHashMap<>();
+
+    // Biblioteca candidata al classpath; loader indica si viene del perfil del loader
+    record ClasspathEntry(MavenCoordinate coordinate, Path jar, boolean loader) {
+    }
+
+    // Classpath ya resuelto por versión, validado con las listas de bibliotecas de los JSON
+    private record CachedClasspath(String stamp, List<Path> jars) {
+    }
+
+    private static final Map<String, CachedClasspath> CLASSPATH_CACHE = new ConcurrentHashMap<>();
+
     // Enum para identificar el tipo de loader
     public enum ModLoader {
         VANILLA, FORGE, FABRIC
@@ -32,7 +66,22 @@ public class Launcher {
     public static void launch(String version, String gameDir, String username, String javaPath,
                               String minRam, String maxRam, int width, int height, boolean cracked, 
                               ModLoader loader, String loaderVersion) throws IOException, InterruptedException {
+        launch(version, gameDir, username, javaPath, minRam, maxRam, width, height, cracked,
+                loader, loaderVersion, new LaunchOptions());
+    }
 
+    public static void launch(String version, String gameDir, String username, String javaPath,
+                              String minRam, String maxRam, int width, int height, boolean cracked,
+                              ModLoader loader, String loaderVersion, LaunchOptions options)
+            throws IOException, InterruptedException {
+
+        long launchStart = System.nanoTime();
+        LaunchTracer tracer = options.isTrace() ? new LaunchTracer(launchStart) : null;
+        if (tracer != null) {
+            tracer.label("version", version).label("loader", loader).label("loaderVersion", loaderVersion)
+                    .label("tuningProfile", options.getTuningProfile()).label("prewarm", options.isPrewarm())
+                    .label("maxRam", maxRam);
+        }
         LOGGER.info("Iniciando el proceso de lanzamiento de Minecraft...");
         LOGGER.info("Loader seleccionado: {}", loader);
         if (loaderVersion != null) {
@@ -65,6 +114,15 @@ public class Launcher {
                 versionJsonPath = Paths.get(gameDir, "shared", "versions", version, version + ".json").toString();
         }
         
+        // Forge se instala (processors incluidos) la primera vez que se lanza
+        if (loader == ModLoader.FORGE && !Files.exists(Paths.get(versionJsonPath))) {
+            LOGGER.info("Forge {} no está instalado, ejecutando el instalador", loaderVersion);
+            ForgeInstaller.installForge(version, loaderVersion, RUNTIME_THREADS, gameDir, javaPath);
+            if (tracer != null) {
+                tracer.mark("forge-install");
+            }
+        }
+
         versionData = loadJsonFromFile(versionJsonPath);
         if (versionData == null) {
             LOGGER.error("Error al cargar el archivo de versión desde el path: {}", versionJsonPath);
@@ -94,17 +152,9 @@ public class Launcher {
                 LOGGER.info("Usando assets de la versión base");
             }
         }
-        
+
         // Obtener el índice de assets
         String assetsIndexName = getAssetsIndex(versionData, baseVersionData);
-        
-        // Asegurarse de que existan los directorios virtuales de assets necesarios
-        Path assetsVirtualDir = Paths.get(gameDir, "shared", "assets", "virtual", assetsIndexName);
-        try {
-            Files.createDirectories(assetsVirtualDir);
-        } catch (IOException e) {
-            LOGGER.error("No se pudo crear directorio virtual de assets: {}", e.getMessage());
-        }
 
         // Preparar directorios nativos
         Path nativesDir = Paths.get(gameDir, "shared", "natives", versionId).toAbsolutePath();
@@ -126,15 +176,6 @@ public class Launcher {
         }
         LOGGER.info("Clase principal identificada: {}", mainClass);
 
-        // Construir el classpath para el lanzamiento, considerando el loader y la versión base
-        String classpath = buildClasspath(versionData, baseVersionData, gameDir, loader, versionId);
-        if (classpath.isEmpty()) {
-            LOGGER.error("El classpath está vacío, no se puede lanzar el juego.");
-            return;
-        }
-
-        LOGGER.info("Classpath preparado correctamente.");
-
         // Mostrar la ubicación del cliente
         String clientVersionId = (baseVersionData != null) ? baseVersionData.get("id").getAsString() : versionId;
         Path clientJar = Paths.get(gameDir, "shared", "versions", clientVersionId, clientVersionId + ".jar");
@@ -173,6 +214,144 @@ public class Launcher {
             vars.put("fabric_mods_dir", Paths.get(gameDir, "mods").toString());
         }
 
+        // Etapas independientes de la preparación: se ejecutan en paralelo
+        final String dir = gameDir;
+        final JsonObject base = baseVersionData;
+        final String requestedJava = javaPath;
+        long prepareStart = System.nanoTime();
+        Map<String, Long> stageTimes = new ConcurrentHashMap<>();
+        ExecutorService stageExecutor = Executors.newFixedThreadPool(LAUNCH_STAGE_THREADS, r -> {
+            Thread thread = new Thread(r, "launch-stage");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<String, CompletableFuture<?>> stages = new LinkedHashMap<>();
+        // Sin ruta de Java explícita, usar el runtime que pide la versión
+        CompletableFuture<String> javaStage = stage("java", stageTimes, stageExecutor, () ->
+                requestedJava == null || requestedJava.isBlank()
+                        ? JavaRuntimeManager.resolveJava(versionData, base, dir, RUNTIME_THREADS)
+                        : requestedJava);
+        stages.put("java", javaStage);
+
+        CompletableFuture<Path> assetsStage = stage("assets", stageTimes, stageExecutor,
+                () -> prepareAssets(dir, assetsIndexName));
+        stages.put("assets", assetsStage);
+
+        CompletableFuture<String> classpathStage = stage("classpath", stageTimes, stageExecutor,
+                () -> buildClasspath(versionData, base, dir, loader, versionId));
+        stages.put("classpath", classpathStage);
+
+        stages.put("natives", stage("natives", stageTimes, stageExecutor, () -> {
+            extractAllNatives(versionData, base, dir, nativesDir);
+            return null;
+        }));
+
+        CompletableFuture<List<String>> jvmArgsStage = stage("jvm-args", stageTimes, stageExecutor, () -> {
+            List<String> jvmArgs = new ArrayList<>();
+            processJvmArguments(versionData, base, jvmArgs, dir, versionId);
+            return jvmArgs;
+        });
+        stages.put("jvm-args", jvmArgsStage);
+
+        // Los argumentos del juego necesitan la carpeta de assets que verá el juego
+        CompletableFuture<List<String>> gameArgsStage = assetsStage.thenCompose(gameAssetsDir ->
+                stage("game-args", stageTimes, stageExecutor, () -> {
+                    Map<String, String> gameVars = new HashMap<>(vars);
+                    gameVars.put("game_assets", gameAssetsDir.toString());
+                    List<String> gameArgs = new ArrayList<>();
+                    processGameArguments(versionData, base, gameArgs, gameVars);
+                    return gameArgs;
+                }));
+        stages.put("game-args", gameArgsStage);
+
+        // Detectar conflictos de mods antes de arrancar el juego
+        CompletableFuture<ModIndex.Report> modsStage = stage("mods", stageTimes, stageExecutor, () ->
+                loader != ModLoader.VANILLA && options.isCheckMods()
+                        ? ModIndex.scan(dir, version, MOD_SCAN_THREADS) : null);
+        stages.put("mods", modsStage);
+
+        try {
+            CompletableFuture<Void> all = CompletableFuture.allOf(stages.values().toArray(new CompletableFuture<?>[0]));
+            if (options.getPrepareDeadlineMillis() > 0) {
+                all.get(options.getPrepareDeadlineMillis(), TimeUnit.MILLISECONDS);
+            } else {
+                all.get();
+            }
+        } catch (TimeoutException e) {
+            List<String> pending = new ArrayList<>();
+            stages.forEach((name, future) -> {
+                if (!future.isDone()) {
+                    pending.add(name);
+                    future.cancel(true);
+                }
+            });
+            LOGGER.error("La preparación superó el límite de {} ms; etapas sin terminar: {}",
+                    options.getPrepareDeadlineMillis(), pending);
+            return;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof InterruptedException ie) {
+                throw ie;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Error preparando el lanzamiento", cause);
+        } finally {
+            stageExecutor.shutdownNow();
+        }
+
+        StringBuilder timings = new StringBuilder();
+        for (String name : stages.keySet()) {
+            timings.append(timings.length() == 0 ? "" : ", ").append(name).append('=')
+                    .append(stageTimes.getOrDefault(name, 0L)).append(" ms");
+        }
+        LOGGER.info("Preparación en paralelo completada en {} ms ({})",
+                (System.nanoTime() - prepareStart) / 1_000_000, timings);
+        if (tracer != null) {
+            tracer.stages(stageTimes);
+            tracer.mark("prepared");
+        }
+
+        javaPath = javaStage.join();
+        if (requestedJava == null || requestedJava.isBlank()) {
+            LOGGER.info("Usando runtime de Java gestionado: {}", javaPath);
+        }
+
+        String classpath = classpathStage.join();
+        if (classpath.isEmpty()) {
+            LOGGER.error("El classpath está vacío, no se puede lanzar el juego.");
+            return;
+        }
+        LOGGER.info("Classpath preparado correctamente.");
+
+        // Precargar jars y natives en la caché de páginas mientras se construye el comando
+        CompletableFuture<ClasspathPrewarmer.Result> prewarm = null;
+        if (options.isPrewarm()) {
+            List<Path> prewarmFiles = ClasspathPrewarmer.collectFiles(
+                    Arrays.asList(classpath.split(File.pathSeparator)), nativesDir);
+            LOGGER.info("Precargando {} ficheros del classpath y natives", prewarmFiles.size());
+            prewarm = ClasspathPrewarmer.start(prewarmFiles, PREWARM_THREADS);
+        }
+
+        ModIndex.Report modReport = modsStage.join();
+        if (modReport != null) {
+            LOGGER.info("Mods analizados: {} jars ({} desde caché) en {} ms",
+                    modReport.scanned(), modReport.cached(), modReport.millis());
+            for (ModIndex.Problem problem : modReport.problems()) {
+                LOGGER.error("Problema de mods: {}", problem.message());
+            }
+            if (modReport.hasProblems() && options.isAbortOnModProblems()) {
+                LOGGER.error("Lanzamiento cancelado: {} problemas en la carpeta de mods", modReport.problems().size());
+                return;
+            }
+        }
+
         // Preparar el comando para lanzar Minecraft
         List<String> command = new ArrayList<>();
         command.add(getJavaBin(javaPath));
@@ -206,12 +385,56 @@ public class Launcher {
             command.add("-Dminecraft.api.services.host=https://invalid.invalid");
         }
 
+        // Heap y perfil recomendados por la telemetría de las partidas anteriores
+        JvmTuning.Profile tuningProfile = options.getTuningProfile();
+        if (options.isAutoHeap()) {
+            GameTelemetry.Recommendation recommendation = GameTelemetry.recommendation(gameDir);
+            if (recommendation != null) {
+                LOGGER.info("Aplicando la recomendación de telemetría: -Xms{} -Xmx{}{} ({})",
+                        recommendation.minRam(), recommendation.maxRam(),
+                        recommendation.profile() != null ? ", perfil " + recommendation.profile() : "",
+                        recommendation.reason());
+                minRam = recommendation.minRam();
+                maxRam = recommendation.maxRam();
+                if (recommendation.profile() != null) {
+                    tuningProfile = recommendation.profile();
+                }
+                if (tracer != null) {
+                    tracer.label("maxRam", maxRam).label("tuningProfile", tuningProfile);
+                }
+            }
+        }
+
         // Agregar argumentos de memoria y classpath
         command.add("-Xms" + minRam);
         command.add("-Xmx" + maxRam);
 
+        // Agregar flags del perfil de ajuste (GC, hilos, páginas grandes), con los núcleos
+        // y la memoria que permita la política de recursos
+        ResourcePolicy resources = options.getResourcePolicy();
+        JvmTuning.Host host = null;
+        if (tuningProfile != JvmTuning.Profile.NONE || options.isTelemetry()) {
+            host = JvmTuning.Host.detect(javaPath);
+            if (resources != null) {
+                host = resources.limit(host);
+            }
+        }
+        if (tuningProfile != JvmTuning.Profile.NONE) {
+            command.addAll(JvmTuning.flagsFor(tuningProfile, javaPath, minRam, maxRam, host));
+        }
+        if (resources != null) {
+            LOGGER.info("Política de recursos: {}", resources);
+            command.addAll(resources.jvmFlags());
+        }
+
+        // Log de GC para la telemetría de la partida
+        GameTelemetry telemetry = options.isTelemetry() ? new GameTelemetry(gameDir, host) : null;
+        if (telemetry != null) {
+            command.addAll(telemetry.jvmFlags());
+        }
+
         // Agregar argumentos JVM específicos para loaders
-        processJvmArguments(versionData, baseVersionData, command, gameDir, versionId);
+        command.addAll(jvmArgsStage.join());
 
         // Agregar classpath (solo una vez)
         command.add("-cp");
@@ -236,7 +459,7 @@ public class Launcher {
         }
 
         // Agregar los argumentos del juego desde el JSON de la versión o la versión base
-        processGameArguments(versionData, baseVersionData, command, vars);
+        command.addAll(gameArgsStage.join());
 
         // Agregar argumentos específicos si no están incluidos
         if (!command.contains("--width")) {
@@ -260,17 +483,63 @@ public class Launcher {
         }
         LOGGER.info("Comando completo: {}", fullCommand.toString());
 
+        // Esperar a la precarga (con límite) para que el juego arranque con la caché caliente
+        if (prewarm != null) {
+            awaitPrewarm(prewarm, options.getPrewarmTimeoutMillis());
+            if (tracer != null) {
+                tracer.mark("prewarm");
+            }
+        }
+
         // Iniciar el proceso
-        ProcessBuilder builder = new ProcessBuilder(command);
+        // El cgroup se prepara antes para que el juego entre en él antes del exec de la JVM
+        ResourcePolicy.Cgroup cgroup = resources != null ? resources.createCgroup() : null;
+        ProcessBuilder builder = new ProcessBuilder(resources != null ? resources.wrap(command, cgroup) : command);
         builder.directory(new File(gameDir));
-        builder.inheritIO();
+        if (tracer != null) {
+            // La salida se lee para detectar los hitos y se reenvía a la consola
+            builder.redirectInput(ProcessBuilder.Redirect.INHERIT);
+        } else {
+            builder.inheritIO();
+        }
 
         // Configurar el entorno de variables
         Map<String, String> env = builder.environment();
         env.put("JAVA_HOME", new File(javaPath).getParent());
 
-        Process process = builder.start();
-        int exitCode = process.waitFor();
+        Process process = null;
+        int exitCode;
+        try {
+            process = builder.start();
+            if (cgroup != null && !cgroup.awaitProcess(process.pid(), 2_000)) {
+                LOGGER.warn("El juego no entró en el cgroup {}, se ejecuta sin límites de memoria ni CPU", cgroup.getDir());
+            }
+            if (tracer != null) {
+                tracer.mark("spawn");
+                tracer.pipe(process.getInputStream(), System.out, "stdout");
+                tracer.pipe(process.getErrorStream(), System.err, "stderr");
+            }
+            if (telemetry != null) {
+                telemetry.attach(process);
+            }
+            if (options.getSpawnListener() != null) {
+                options.getSpawnListener().accept(process);
+            }
+            LOGGER.info("Proceso del juego iniciado {} ms después de empezar el lanzamiento",
+                    (System.nanoTime() - launchStart) / 1_000_000);
+            exitCode = process.waitFor();
+        } finally {
+            if (cgroup != null) {
+                // Interrumpido con el juego abierto: el cgroup se borra cuando termine
+                cgroup.closeAfter(process);
+            }
+        }
+        if (tracer != null) {
+            tracer.finish(gameDir, exitCode);
+        }
+        if (telemetry != null) {
+            telemetry.finish(exitCode, maxRam);
+        }
         if (exitCode == 0) {
             LOGGER.info("Minecraft lanzado correctamente.");
         } else {
@@ -278,6 +547,61 @@ public class Launcher {
         }
     }
 
+    /**
+     * Ejecuta una etapa de la preparación en el executor y anota su duración.
+     */
+    private static <T> CompletableFuture<T> stage(String name, Map<String, Long> times, ExecutorService executor,
+                                                  Callable<T> body) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return body.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                times.put(name, (System.nanoTime() - start) / 1_000_000);
+                LOGGER.debug("Etapa {} terminada", name);
+            }
+        }, executor);
+    }
+
+    /**
+     * Crea el directorio virtual del índice y, para índices legacy/pre-1.6,
+     * enlaza los assets por nombre desde objects. Devuelve la carpeta que usará el juego.
+     */
+    private static Path prepareAssets(String gameDir, String assetsIndexName) throws IOException {
+        // Asegurarse de que existan los directorios virtuales de assets necesarios
+        Path assetsVirtualDir = Paths.get(gameDir, "shared", "assets", "virtual", assetsIndexName);
+        try {
+            Files.createDirectories(assetsVirtualDir);
+        } catch (IOException e) {
+            LOGGER.error("No se pudo crear directorio virtual de assets: {}", e.getMessage());
+        }
+
+        // Índices legacy/pre-1.6: los assets se leen por nombre, enlazados desde objects
+        JsonObject assetIndex = AssetLayout.loadIndex(gameDir, assetsIndexName);
+        if (assetIndex != null && AssetLayout.needsLayout(assetIndex)) {
+            AssetLayout.apply(assetIndex, assetsIndexName, gameDir);
+        }
+        return AssetLayout.getGameAssetsDir(assetIndex, assetsIndexName, gameDir);
+    }
+
+    private static void awaitPrewarm(CompletableFuture<ClasspathPrewarmer.Result> prewarm, long timeoutMillis)
+            throws InterruptedException {
+        long waitStart = System.nanoTime();
+        try {
+            ClasspathPrewarmer.Result result = prewarm.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            long waited = (System.nanoTime() - waitStart) / 1_000_000;
+            LOGGER.info("Precarga completada: {} ficheros, {} MB en {} ms ({} MB/s), espera antes de lanzar: {} ms",
+                    result.files(), result.bytes() >> 20, result.millis(),
+                    String.format(Locale.ROOT, "%.1f", result.megabytesPerSecond()), waited);
+        } catch (TimeoutException e) {
+            LOGGER.warn("La precarga no terminó en {} ms, se lanza el juego sin esperar", timeoutMillis);
+        } catch (ExecutionException e) {
+            LOGGER.warn("Error en la precarga: {}", e.getCause().getMessage());
+        }
+    }
+
     private static void createDirectory(Path dir, String descripcion) {
         if (!Files.exists(dir)) {
             try {
@@ -409,14 +733,23 @@ public class Launcher {
             LOGGER.error("El archivo JSON no existe: {}", filePath);
             return null;
         }
+        // Reutilizar el JSON ya parseado si el fichero no ha cambiado (útil en modo daemon)
+        String stamp = Files.getLastModifiedTime(path).toMillis() + ":" + Files.size(path);
+        CachedJson cached = JSON_CACHE.get(path);
+        if (cached != null && cached.stamp().equals(stamp)) {
+            return cached.json().deepCopy();
+        }
         String content = Files.readString(path);
+        JsonObject json;
         try {
             // Para compatibilidad con diferentes versiones de Gson
-            return new com.google.gson.JsonParser().parse(content).getAsJsonObject();
+            json = new com.google.gson.JsonParser().parse(content).getAsJsonObject();
         } catch (Exception e) {
             // En versiones más nuevas de Gson
-            return com.google.gson.JsonParser.parseString(content).getAsJsonObject();
+            json = com.google.gson.JsonParser.parseString(content).getAsJsonObject();
         }
+        JSON_CACHE.put(path, new CachedJson(stamp, json));
+        return json.deepCopy();
     }
 
     private static String getJavaBin(String javaPath) {
@@ -433,24 +766,12 @@ public class Launcher {
                                           ModLoader loader, String versionId) {
         LOGGER.info("Construyendo el classpath para loader: {}", loader);
 
-        Set<String> paths = new LinkedHashSet<>();
-        Set<String> asmVersions = new HashSet<>();
         Path libDir = Paths.get(gameDir, "shared", "libraries").toAbsolutePath().normalize();
         
         String baseVersionId = null;
         if (baseVersionData != null) {
             baseVersionId = baseVersionData.get("id").getAsString();
         }
-        
-        Path nativesDir = Paths.get(gameDir, "shared", "natives", versionId).toAbsolutePath().normalize();
-
-        // Biblioteca de las dos versiones, dando prioridad a las del loader
-        processLibrariesForClasspath(versionData, paths, libDir, nativesDir, versionId, asmVersions, true);
-        
-        if (baseVersionData != null) {
-            processLibrariesForClasspath(baseVersionData, paths, libDir, nativesDir,
-                    baseVersionId != null ? baseVersionId : versionId, asmVersions, false);
-        }
 
         // Agregar el archivo cliente JAR
         Path clientJar;
@@ -461,40 +782,98 @@ public class Launcher {
             // Si no hay versión base, usar el JAR principal
             clientJar = Paths.get(gameDir, "shared", "versions", versionId, versionId + ".jar");
         }
-        
-        if (Files.exists(clientJar)) {
-            paths.add(clientJar.toString());
-            LOGGER.debug("Cliente JAR cargado: {}", clientJar);
-        } else {
+
+        if (!Files.exists(clientJar)) {
             LOGGER.error("Cliente JAR no encontrado: {}", clientJar);
             return "";
         }
+        LOGGER.debug("Cliente JAR cargado: {}", clientJar);
+
+        // Reutilizar la resolución anterior si las listas de bibliotecas no han cambiado
+        String cacheKey = libDir + "|" + versionId;
+        String stamp = librariesStamp(versionData) + "|" + librariesStamp(baseVersionData) + "|" + clientJar;
+        CachedClasspath cached = CLASSPATH_CACHE.get(cacheKey);
+        if (cached != null && cached.stamp().equals(stamp) && cached.jars().stream().allMatch(Files::exists)) {
+            LOGGER.info("Total de bibliotecas cargadas en el classpath: {} (resolución en caché)", cached.jars().size());
+            return joinClasspath(cached.jars());
+        }
 
-        // Depuración de versiones ASM
-        if (!asmVersions.isEmpty()) {
-            LOGGER.info("Versiones de ASM encontradas: {}", asmVersions);
+        // Bibliotecas de las dos versiones; en caso de conflicto gana la del loader
+        List<ClasspathEntry> entries = new ArrayList<>();
+        boolean complete = collectLibraries(versionData, libDir, baseVersionData != null, entries);
+        if (baseVersionData != null) {
+            complete &= collectLibraries(baseVersionData, libDir, false, entries);
         }
-        
-        // Filtrar classpath para eliminar duplicados y problemas conocidos
-        List<String> filteredClasspath = new ArrayList<>(paths);
-        // Filtrar ASM conflictivas (mantener versión de Fabric)
-        if (loader == ModLoader.FABRIC) {
-            filteredClasspath.removeIf(path -> 
-                path.contains("org\\ow2\\asm\\asm\\9.6\\asm-9.6.jar") ||
-                path.contains("org/ow2/asm/asm/9.6/asm-9.6.jar"));
+
+        List<Path> jars = new ArrayList<>();
+        for (ClasspathEntry entry : resolveConflicts(entries)) {
+            jars.add(entry.jar());
         }
-        
-        LOGGER.info("Total de bibliotecas cargadas en el classpath: {}", filteredClasspath.size());
-        
-        return String.join(File.pathSeparator, filteredClasspath);
+        jars.add(clientJar);
+
+        // Solo se guarda si no falta nada: una biblioteca que aparezca después debe entrar
+        if (complete) {
+            CLASSPATH_CACHE.put(cacheKey, new CachedClasspath(stamp, List.copyOf(jars)));
+        }
+        LOGGER.info("Total de bibliotecas cargadas en el classpath: {}", jars.size());
+        return joinClasspath(jars);
     }
-    
-    private static void processLibrariesForClasspath(JsonObject versionData, Set<String> paths, 
-                                                    Path libDir, Path nativesDir, String versionId, 
-                                                    Set<String> asmVersions, boolean isPrimaryLibrary) {
+
+    private static String joinClasspath(List<Path> jars) {
+        StringJoiner joiner = new StringJoiner(File.pathSeparator);
+        jars.forEach(jar -> joiner.add(jar.toString()));
+        return joiner.toString();
+    }
+
+    private static String librariesStamp(JsonObject versionData) {
+        if (versionData == null || !versionData.has("libraries")) {
+            return "-";
+        }
+        JsonArray libraries = versionData.getAsJsonArray("libraries");
+        return libraries.size() + ":" + libraries.hashCode();
+    }
+
+    /**
+     * Deja una sola versión de cada artefacto (grupo:artefacto[:clasificador]).
+     * Las bibliotecas del loader ganan a las de la versión base; entre las de
+     * un mismo perfil gana la versión más alta. Se conserva el orden de aparición.
+     */
+    static List<ClasspathEntry> resolveConflicts(List<ClasspathEntry> entries) {
+        Map<String, ClasspathEntry> chosen = new LinkedHashMap<>();
+        for (ClasspathEntry entry : entries) {
+            String key = entry.coordinate() != null ? entry.coordinate().key() : entry.jar().toString();
+            ClasspathEntry current = chosen.get(key);
+            if (current == null) {
+                chosen.put(key, entry);
+                continue;
+            }
+            if (current.jar().equals(entry.jar()) || entry.coordinate() == null || current.coordinate() == null) {
+                continue;
+            }
+            boolean replace = current.loader() != entry.loader()
+                    ? entry.loader()
+                    : ModIndex.compare(entry.coordinate().version(), current.coordinate().version()) > 0;
+            ClasspathEntry kept = replace ? entry : current;
+            ClasspathEntry dropped = replace ? current : entry;
+            LOGGER.info("Conflicto en el classpath: {} se descarta en favor de {}{}",
+                    dropped.coordinate(), kept.coordinate().version(), kept.loader() ? " (loader)" : "");
+            if (replace) {
+                chosen.put(key, entry);
+            }
+        }
+        return new ArrayList<>(chosen.values());
+    }
+
+    /**
+     * Añade a entries las bibliotecas de la versión que se cargan en este
+     * sistema. Devuelve false si alguna no está descargada.
+     */
+    private static boolean collectLibraries(JsonObject versionData, Path libDir, boolean loaderProfile,
+                                            List<ClasspathEntry> entries) {
         if (!versionData.has("libraries")) {
-            return;
+            return true;
         }
+        boolean complete = true;
         
         JsonArray libraries = versionData.getAsJsonArray("libraries");
         
@@ -505,67 +884,69 @@ public class Launcher {
             if (lib.has("rules") && !shouldIncludeLibrary(lib.getAsJsonArray("rules"))) {
                 continue;
             }
-            
-            // Si es ASM y no es librería del loader principal, saltarla
-            String libName = lib.has("name") ? lib.get("name").getAsString() : "";
-            if (!isPrimaryLibrary && libName.startsWith("org.ow2.asm:")) {
+
+            // Bibliotecas solo de natives (formato antiguo): las extrae la etapa de natives
+            if (lib.has("natives") && !(lib.has("downloads") && lib.getAsJsonObject("downloads").has("artifact"))) {
                 continue;
             }
 
+            MavenCoordinate coordinate = null;
+            if (lib.has("name")) {
+                try {
+                    coordinate = MavenCoordinate.parse(lib.get("name").getAsString());
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("Nombre de biblioteca no válido: {}", lib.get("name").getAsString());
+                }
+            }
+
             // Procesar bibliotecas normales
             if (lib.has("downloads") && lib.getAsJsonObject("downloads").has("artifact")) {
                 JsonObject artifact = lib.getAsJsonObject("downloads").getAsJsonObject("artifact");
                 if (artifact.has("path")) {
-                    String relPath = artifact.get("path").getAsString();
-                    Path jarPath = libDir.resolve(relPath);
-                    
-                    // Registrar versiones de ASM para depuración
-                    if (relPath.contains("org/ow2/asm") || relPath.contains("org\\ow2\\asm")) {
-                        asmVersions.add(relPath);
-                    }
-                    
+                    Path jarPath = libDir.resolve(artifact.get("path").getAsString());
                     if (Files.exists(jarPath)) {
-                        paths.add(jarPath.toString());
+                        entries.add(new ClasspathEntry(coordinate, jarPath, loaderProfile));
                         LOGGER.debug("Biblioteca cargada: {}", jarPath);
                     } else {
                         LOGGER.warn("Biblioteca no encontrada: {}", jarPath);
+                        complete = false;
                     }
                 }
-            } else if (lib.has("name")) {
-                // Formato alternativo para bibliotecas: "name" = "groupId:artifactId:version"
-                String[] parts = libName.split(":");
-                if (parts.length >= 3) {
-                    String groupId = parts[0].replace(".", "/");
-                    String artifactId = parts[1];
-                    String version = parts[2];
-
-                    // Manejar clasificador si existe (partes[3])
-                    String classifier = "";
-                    if (parts.length > 3) {
-                        classifier = "-" + parts[3];
-                    }
+            } else if (coordinate != null) {
+                // Formato alternativo para bibliotecas: "name" = "groupId:artifactId:version[:classifier]"
+                Path jarPath = libDir.resolve(coordinate.path());
+                if (Files.exists(jarPath)) {
+                    entries.add(new ClasspathEntry(coordinate, jarPath, loaderProfile));
+                    LOGGER.debug("Biblioteca cargada (formato alternativo): {}", jarPath);
+                } else if (lib.has("url")) {
+                    LOGGER.warn("Biblioteca no encontrada localmente, disponible en URL: {}", lib.get("url").getAsString());
+                    complete = false;
+                } else {
+                    LOGGER.warn("Biblioteca no encontrada (formato alternativo): {}", jarPath);
+                    complete = false;
+                }
+            }
+        }
+        return complete;
+    }
 
-                    Path jarPath = libDir.resolve(
-                            Paths.get(groupId, artifactId, version, artifactId + "-" + version + classifier + ".jar"));
-                    
-                    // Registrar versiones de ASM para depuración
-                    if (libName.startsWith("org.ow2.asm:")) {
-                        asmVersions.add(libName);
-                    }
-                    
-                    if (Files.exists(jarPath)) {
-                        paths.add(jarPath.toString());
-                        LOGGER.debug("Biblioteca cargada (formato alternativo): {}", jarPath);
-                    } else if (lib.has("url")) {
-                        LOGGER.warn("Biblioteca no encontrada localmente, disponible en URL: {}", lib.get("url").getAsString());
-                    } else {
-                        LOGGER.warn("Biblioteca no encontrada (formato alternativo): {}", jarPath);
-                    }
+    /**
+     * Extrae los natives de las bibliotecas de la versión y de su versión base.
+     */
+    private static void extractAllNatives(JsonObject versionData, JsonObject baseVersionData, String gameDir,
+                                          Path nativesDir) {
+        Path libDir = Paths.get(gameDir, "shared", "libraries").toAbsolutePath().normalize();
+        for (JsonObject data : new JsonObject[]{versionData, baseVersionData}) {
+            if (data == null || !data.has("libraries")) {
+                continue;
+            }
+            for (JsonElement libElement : data.getAsJsonArray("libraries")) {
+                JsonObject lib = libElement.getAsJsonObject();
+                if (lib.has("rules") && !shouldIncludeLibrary(lib.getAsJsonArray("rules"))) {
+                    continue;
                 }
+                processNatives(lib, libDir, nativesDir);
             }
-            
-            // Procesar bibliotecas nativas si existen
-            processNatives(lib, libDir, nativesDir);
         }
     }
     
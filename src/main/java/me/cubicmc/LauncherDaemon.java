@@ -0,0 +1,455 @@
+package me.cubicmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Daemon del launcher. Mantiene en memoria Gson, log4j, los clientes HTTP con
+ * sus conexiones, los JSON de versión resueltos y las cachés de HttpUtils, y
+ * atiende peticiones por un socket de dominio Unix.
+ *
+ * <p>Protocolo: el cliente envía una línea JSON con "command" y sus parámetros;
+ * el daemon responde con una línea JSON con "ok" y, si falla, "error". Al ser
+ * texto plano, cualquier herramienta (socat, nc -U) puede hacer de cliente.
+ * "launch" responde con el "pid" del juego en cuanto arranca, sin esperar a que termine.
+ *
+ * <pre>
+ * {"command":"install","version":"1.21.5","threads":16}
+ * {"command":"verify","version":"1.21.5"}
+ * {"command":"launch","version":"1.21.5","username":"Steve","maxRam":"4G","loader":"FABRIC","loaderVersion":"0.16.13","trace":true}
+ * {"command":"launch","version":"1.21.5","cpus":"4-7","nice":5,"ioPriority":6,"memoryMax":"6G","cpuPercent":350}
+ * {"command":"gc","dryRun":true}
+ * {"command":"bandwidth","limit":5242880}
+ * {"command":"mod-sync","version":"1.21.5","loader":"FABRIC","apply":true}
+ * {"command":"watch","enabled":true,"intervalMinutes":10,"snapshots":"\\d+w\\d+a"}
+ * {"command":"traces"}
+ * {"command":"instance","template":"/srv/templates/pack","target":"/srv/bots/bot-17"}
+ * {"command":"ping"}
+ * {"command":"stop"}
+ * </pre>
+ */
+public class LauncherDaemon {
+
+    private static final Logger LOGGER = LogManager.getLogger(LauncherDaemon.class);
+
+    private static final int DEFERRED_ASSET_THREADS = 2;
+
+    private final Path socketPath;
+    private final String gameDir;
+    private final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "daemon-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile ServerSocketChannel server;
+    private volatile boolean stopping;
+    private ManifestWatcher watcher;
+    // Descargas en segundo plano de los assets diferidos, por versión
+    private final Map<String, CompletableFuture<Void>> deferredAssets = new ConcurrentHashMap<>();
+
+    public LauncherDaemon(Path socketPath, String gameDir) {
+        this.socketPath = socketPath.toAbsolutePath();
+        this.gameDir = gameDir;
+    }
+
+    /**
+     * Abre el socket y atiende conexiones hasta recibir "stop". Bloquea el hilo actual.
+     */
+    public void run() throws IOException {
+        Files.deleteIfExists(socketPath);
+        if (socketPath.getParent() != null) {
+            Files.createDirectories(socketPath.getParent());
+        }
+
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        bindPrivately();
+        LOGGER.info("Daemon del launcher escuchando en {} (gameDir {})", socketPath, gameDir);
+
+        try {
+            while (server.isOpen()) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (IOException e) {
+                    if (!server.isOpen()) {
+                        break;
+                    }
+                    throw e;
+                }
+                workers.submit(() -> handle(client));
+            }
+        } finally {
+            workers.shutdown();
+            synchronized (this) {
+                if (watcher != null) {
+                    watcher.close();
+                }
+            }
+            Files.deleteIfExists(socketPath);
+            LOGGER.info("Daemon del launcher detenido");
+        }
+    }
+
+    /**
+     * Solo el usuario actual puede hablar con el daemon. El socket se crea en
+     * un directorio 0700, se restringe y se mueve a su ruta final, así que
+     * nunca es accesible con los permisos por defecto.
+     */
+    private void bindPrivately() throws IOException {
+        Path parent = socketPath.toAbsolutePath().getParent();
+        Path privateDir;
+        try {
+            Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rwx------");
+            privateDir = Files.createTempDirectory(parent, ".neutron-daemon-",
+                    PosixFilePermissions.asFileAttribute(ownerOnly));
+        } catch (UnsupportedOperationException e) {
+            LOGGER.debug("El sistema de ficheros no admite permisos POSIX para {}", socketPath);
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            return;
+        }
+        Path staged = privateDir.resolve("socket");
+        try {
+            server.bind(UnixDomainSocketAddress.of(staged));
+            Files.setPosixFilePermissions(staged, PosixFilePermissions.fromString("rw-------"));
+            // Un socket enlazado sigue escuchando tras renombrarlo
+            Files.move(staged, socketPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(staged);
+            Files.deleteIfExists(privateDir);
+        }
+    }
+
+    public void stop() {
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Error cerrando el socket del daemon: {}", e.getMessage());
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+             OutputStream out = Channels.newOutputStream(client)) {
+            String line = reader.readLine();
+            if (line == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            JsonObject response;
+            try {
+                JsonObject request = JsonParser.parseString(line).getAsJsonObject();
+                response = dispatch(request);
+            } catch (Exception e) {
+                LOGGER.error("Error atendiendo petición {}: {}", line, e.getMessage(), e);
+                response = new JsonObject();
+                response.addProperty("ok", false);
+                response.addProperty("error", String.valueOf(e.getMessage()));
+            }
+            response.addProperty("millis", (System.nanoTime() - start) / 1_000_000);
+            out.write((response + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            LOGGER.warn("Conexión con el cliente cerrada: {}", e.getMessage());
+        }
+        // El socket se cierra después de responder a "stop"
+        if (stopping) {
+            stop();
+        }
+    }
+
+    private JsonObject dispatch(JsonObject request) throws IOException, InterruptedException {
+        String command = request.get("command").getAsString();
+        LOGGER.info("Petición recibida: {}", command);
+        JsonObject response = new JsonObject();
+        response.addProperty("ok", true);
+
+        switch (command) {
+            case "ping":
+                break;
+            case "install":
+            case "verify":
+                // Los pasos de instalación verifican lo existente y solo descargan lo que falta o no cuadra
+                install(request.get("version").getAsString(), intOr(request, "threads", 16),
+                        request.has("early") && request.get("early").getAsBoolean());
+                break;
+            case "launch":
+                // Lanzamiento temprano: el juego arranca sin sonidos ni música, que siguen descargándose
+                if (request.has("early") && request.get("early").getAsBoolean()) {
+                    install(request.get("version").getAsString(), intOr(request, "threads", 16), true);
+                }
+                response.addProperty("pid", launch(request));
+                break;
+            case "deferred-assets":
+                JsonObject pending = new JsonObject();
+                deferredAssets.forEach((version, future) -> pending.addProperty(version,
+                        !future.isDone() ? "downloading" : future.isCompletedExceptionally() ? "failed" : "done"));
+                response.add("deferred", pending);
+                break;
+            case "gc":
+                StoreGarbageCollector.Report report = StoreGarbageCollector.collect(gameDir,
+                        !request.has("dryRun") || request.get("dryRun").getAsBoolean(), intOr(request, "threads", 8));
+                response.addProperty("files", report.totalFiles());
+                response.addProperty("bytes", report.totalBytes());
+                break;
+            case "mod-sync":
+                ModSync.Result sync = ModSync.sync(stringOr(request, "gameDir", gameDir),
+                        request.get("version").getAsString(),
+                        Launcher.ModLoader.valueOf(stringOr(request, "loader", "FABRIC")),
+                        intOr(request, "threads", 8),
+                        request.has("apply") && request.get("apply").getAsBoolean());
+                response.addProperty("scanned", sync.scanned());
+                response.addProperty("updates", sync.updates().size());
+                response.addProperty("applied", sync.applied());
+                break;
+            case "bandwidth":
+                // Límite global de descarga en bytes/s; 0 lo desactiva
+                if (request.has("limit")) {
+                    BandwidthLimiter.setLimit(request.get("limit").getAsLong());
+                }
+                response.addProperty("limit", BandwidthLimiter.getLimit());
+                break;
+            case "watch":
+                watch(request, response);
+                break;
+            case "traces":
+                JsonArray traces = new JsonArray();
+                LaunchTracer.readTraces(stringOr(request, "gameDir", gameDir)).forEach(traces::add);
+                response.add("traces", traces);
+                break;
+            case "telemetry":
+                // Partidas registradas y recomendación de heap de la instancia
+                JsonObject profile = GameTelemetry.readProfile(stringOr(request, "gameDir", gameDir));
+                response.add("telemetry", profile != null ? profile : new JsonObject());
+                break;
+            case "instance":
+                // Materializa una plantilla: hardlinks/reflinks para lo inmutable y copias para el resto
+                InstanceTemplates.Report created = InstanceTemplates.materialize(
+                        Paths.get(request.get("template").getAsString()),
+                        Paths.get(request.get("target").getAsString()),
+                        !request.has("shareStore") || request.get("shareStore").getAsBoolean(),
+                        intOr(request, "threads", 8));
+                response.addProperty("linked", created.linked() + created.reflinked());
+                response.addProperty("copied", created.copied());
+                break;
+            case "snapshot":
+                InstanceSnapshots.Report snapshot = InstanceSnapshots.snapshot(stringOr(request, "gameDir", gameDir),
+                        stringOr(request, "label", null),
+                        request.has("saves") && request.get("saves").getAsBoolean(),
+                        intOr(request, "threads", 8));
+                response.addProperty("id", snapshot.id());
+                response.addProperty("files", snapshot.files());
+                response.addProperty("hashed", snapshot.hashed());
+                break;
+            case "snapshots":
+                JsonArray snapshots = new JsonArray();
+                for (InstanceSnapshots.Snapshot entry : InstanceSnapshots.list(stringOr(request, "gameDir", gameDir))) {
+                    JsonObject json = new JsonObject();
+                    json.addProperty("id", entry.id());
+                    json.addProperty("label", entry.label());
+                    json.addProperty("created", entry.created());
+                    json.addProperty("files", entry.files());
+                    json.addProperty("bytes", entry.bytes());
+                    snapshots.add(json);
+                }
+                response.add("snapshots", snapshots);
+                break;
+            case "restore":
+                // Antes de restaurar se guarda el estado actual; su id permite deshacer
+                InstanceSnapshots.RestoreReport restored = InstanceSnapshots.restore(
+                        stringOr(request, "gameDir", gameDir), request.get("id").getAsString(),
+                        intOr(request, "threads", 8));
+                response.addProperty("restored", restored.restored());
+                response.addProperty("deleted", restored.deleted());
+                response.addProperty("unchanged", restored.unchanged());
+                response.addProperty("undo", restored.safetySnapshot());
+                break;
+            case "snapshot-delete":
+                response.addProperty("objectsRemoved", InstanceSnapshots.delete(stringOr(request, "gameDir", gameDir),
+                        request.get("id").getAsString()));
+                break;
+            case "clear-cache":
+                HttpUtils.clearCache();
+                break;
+            case "stop":
+                stopping = true;
+                break;
+            default:
+                response.addProperty("ok", false);
+                response.addProperty("error", "Comando desconocido: " + command);
+        }
+        return response;
+    }
+
+    /**
+     * Instala la versión. Con early solo espera a los assets críticos y deja
+     * los diferidos descargándose en segundo plano.
+     */
+    private void install(String version, int threads, boolean early) throws IOException, InterruptedException {
+        DownloadUtil.downloadVersionData(version, gameDir);
+        DownloadUtil.downloadVersionIndex(version, gameDir);
+        DownloadUtil.downloadClient(version, threads, gameDir);
+        DownloadUtil.downloadLibraries(version, threads, gameDir);
+        DownloadUtil.downloadNatives(version, threads, gameDir);
+        if (!early) {
+            DownloadUtil.downloadAssets(version, threads, gameDir);
+            return;
+        }
+        DownloadUtil.downloadAssets(version, threads, gameDir, DownloadUtil.AssetScope.CRITICAL);
+        deferredAssets.compute(version, (v, running) -> running != null && !running.isDone() ? running
+                : DownloadUtil.downloadDeferredAssetsInBackground(v, DEFERRED_ASSET_THREADS, gameDir));
+    }
+
+    /**
+     * Activa, reconfigura o detiene el vigilante del manifiesto.
+     */
+    private synchronized void watch(JsonObject request, JsonObject response) {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+        if (!request.has("enabled") || request.get("enabled").getAsBoolean()) {
+            ManifestWatcher.Policy policy = request.has("snapshots")
+                    ? ManifestWatcher.Policy.withSnapshots(request.get("snapshots").getAsString())
+                    : ManifestWatcher.Policy.latestReleaseOnly();
+            watcher = new ManifestWatcher(gameDir, policy, intOr(request, "intervalMinutes", 10) * 60_000L,
+                    intOr(request, "threads", 2));
+            watcher.start();
+        }
+        response.addProperty("watching", watcher != null);
+    }
+
+    /**
+     * Política de recursos a partir de "cpus", "nice", "ioPriority", "memoryMax" y "cpuPercent".
+     */
+    private static ResourcePolicy resourcePolicy(JsonObject request) {
+        if (!request.has("cpus") && !request.has("nice") && !request.has("ioPriority")
+                && !request.has("memoryMax") && !request.has("cpuPercent")) {
+            return null;
+        }
+        ResourcePolicy policy = new ResourcePolicy();
+        if (request.has("cpus")) {
+            policy.cpus(request.get("cpus").getAsString());
+        }
+        if (request.has("nice")) {
+            policy.nice(request.get("nice").getAsInt());
+        }
+        if (request.has("ioPriority")) {
+            policy.ioPriority(request.get("ioPriority").getAsInt());
+        }
+        if (request.has("memoryMax")) {
+            policy.memoryMax(request.get("memoryMax").getAsString());
+        }
+        if (request.has("cpuPercent")) {
+            policy.cpuPercent(request.get("cpuPercent").getAsInt());
+        }
+        return policy;
+    }
+
+    /**
+     * Lanza el juego en un worker y responde en cuanto el proceso arranca, sin
+     * esperar a que termine. Devuelve el PID del juego.
+     */
+    private long launch(JsonObject request) throws IOException, InterruptedException {
+        CompletableFuture<Process> spawned = new CompletableFuture<>();
+        LaunchOptions options = new LaunchOptions()
+                .tuningProfile(JvmTuning.Profile.valueOf(stringOr(request, "profile", "NONE")))
+                .prewarm(request.has("prewarm") && request.get("prewarm").getAsBoolean())
+                .trace(request.has("trace") && request.get("trace").getAsBoolean())
+                .telemetry(request.has("telemetry") && request.get("telemetry").getAsBoolean())
+                .autoHeap(request.has("autoHeap") && request.get("autoHeap").getAsBoolean())
+                .resourcePolicy(resourcePolicy(request))
+                .onSpawn(spawned::complete);
+        workers.submit(() -> {
+            try {
+                Launcher.launch(
+                        request.get("version").getAsString(),
+                        stringOr(request, "gameDir", gameDir),
+                        stringOr(request, "username", "Player"),
+                        stringOr(request, "javaPath", null),
+                        stringOr(request, "minRam", "2G"),
+                        stringOr(request, "maxRam", "4G"),
+                        intOr(request, "width", 854),
+                        intOr(request, "height", 480),
+                        request.has("cracked") && request.get("cracked").getAsBoolean(),
+                        Launcher.ModLoader.valueOf(stringOr(request, "loader", "VANILLA")),
+                        stringOr(request, "loaderVersion", null),
+                        options);
+            } catch (Exception e) {
+                if (!spawned.completeExceptionally(e)) {
+                    LOGGER.error("Error esperando al juego: {}", e.getMessage(), e);
+                }
+                return;
+            }
+            // Launcher.launch puede terminar sin arrancar el juego (versión no encontrada...)
+            spawned.complete(null);
+        });
+        Process process;
+        try {
+            process = spawned.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+        if (process == null) {
+            throw new IOException("El juego no llegó a iniciarse; revisa el log del launcher");
+        }
+        return process.pid();
+    }
+
+    private static String stringOr(JsonObject request, String key, String fallback) {
+        return request.has(key) && !request.get(key).isJsonNull() ? request.get(key).getAsString() : fallback;
+    }
+
+    private static int intOr(JsonObject request, String key, int fallback) {
+        return request.has(key) ? request.get(key).getAsInt() : fallback;
+    }
+
+    /**
+     * Cliente ligero: envía una petición al daemon y espera la respuesta.
+     */
+    public static JsonObject send(Path socketPath, JsonObject request) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+             OutputStream out = Channels.newOutputStream(channel);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8))) {
+            out.write((request + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("El daemon cerró la conexión sin responder");
+            }
+            return JsonParser.parseString(line).getAsJsonObject();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package me.cubicmc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Coloca ficheros del almacén compartido en otra ruta sin duplicar datos:
+ * hardlink si es posible, reflink si el sistema de ficheros lo soporta y
+ * copia solo como último recurso.
+ */
+public class LinkUtil {
+    private static final Logger LOGGER = Logger.getLogger(LinkUtil.class.getName());
+
+    public enum Method {
+        HARDLINK, REFLINK, COPY
+    }
+
+    // Pares de sistemas de ficheros (origen -> destino) en los que cada método no está
+    // soportado. Solo se anotan errores del sistema de ficheros, no fallos de un fichero
+    private static final Map<String, Boolean> HARDLINK_UNSUPPORTED = new ConcurrentHashMap<>();
+    private static final Map<String, Boolean> REFLINK_UNSUPPORTED = new ConcurrentHashMap<>();
+
+    /**
+     * Enlaza o copia source en target, reemplazando target si ya existe.
+     * Crea los directorios padre necesarios.
+     */
+    public static Method linkOrCopy(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        String storeKey = storeKey(source, target);
+
+        if (!HARDLINK_UNSUPPORTED.containsKey(storeKey)) {
+            try {
+                Files.deleteIfExists(target);
+                Files.createLink(target, source);
+                return Method.HARDLINK;
+            } catch (UnsupportedOperationException e) {
+                markUnsupported(HARDLINK_UNSUPPORTED, "Hardlink", storeKey, e.getMessage());
+            } catch (FileSystemException e) {
+                String reason = String.valueOf(e.getReason());
+                if (isUnsupported(reason) || !sameStore(source, target)) {
+                    // Dispositivos distintos, FAT32...
+                    markUnsupported(HARDLINK_UNSUPPORTED, "Hardlink", storeKey, reason);
+                } else if (!reason.contains("Too many links")) {
+                    // Origen ausente, carrera con otro proceso...: es un fallo de este fichero
+                    throw e;
+                } else {
+                    // Límite de enlaces del inodo: solo este fichero se clona o copia
+                    LOGGER.fine("Límite de hardlinks alcanzado en " + source);
+                }
+            }
+        }
+
+        if (!REFLINK_UNSUPPORTED.containsKey(storeKey) && reflink(source, target, storeKey)) {
+            return Method.REFLINK;
+        }
+
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        return Method.COPY;
+    }
+
+    /**
+     * Indica si target ya comparte datos con source (mismo inodo).
+     */
+    public static boolean isSameFile(Path source, Path target) {
+        try {
+            return Files.exists(target) && Files.isSameFile(source, target);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Clona el fichero con copy-on-write (btrfs, XFS, APFS, ZFS...) usando cp.
+     * Solo anota el par como no soportado si cp no existe o el sistema de
+     * ficheros rechaza el clon; cualquier otro fallo deja el siguiente intento libre.
+     */
+    private static boolean reflink(Path source, Path target, String storeKey) throws IOException {
+        String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+        List<String> command;
+        if (os.contains("linux")) {
+            command = List.of("cp", "--reflink=always", source.toString(), target.toString());
+        } else if (os.contains("mac")) {
+            command = List.of("cp", "-c", source.toString(), target.toString());
+        } else {
+            markUnsupported(REFLINK_UNSUPPORTED, "Reflink", storeKey, os);
+            return false;
+        }
+        Process process;
+        try {
+            process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .start();
+        } catch (IOException e) {
+            markUnsupported(REFLINK_UNSUPPORTED, "Reflink", storeKey, e.getMessage());
+            return false;
+        }
+        try {
+            if (!process.waitFor(1, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+                Files.deleteIfExists(target);
+                return false;
+            }
+            if (process.exitValue() != 0) {
+                // cp solo escribe el mensaje de error: cabe de sobra en el buffer de la tubería
+                String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                Files.deleteIfExists(target);
+                if (isUnsupported(output) || !sameStore(source, target)) {
+                    markUnsupported(REFLINK_UNSUPPORTED, "Reflink", storeKey, output.strip());
+                }
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido clonando " + source);
+        }
+    }
+
+    private static boolean isUnsupported(String reason) {
+        return reason.contains("cross-device") || reason.contains("not supported")
+                || reason.contains("not permitted") || reason.contains("Invalid argument");
+    }
+
+    private static void markUnsupported(Map<String, Boolean> unsupported, String method, String storeKey,
+                                        String reason) {
+        if (unsupported.put(storeKey, Boolean.TRUE) == null) {
+            LOGGER.fine(method + " no disponible en " + storeKey + ": " + reason);
+        }
+    }
+
+    private static boolean sameStore(Path source, Path target) {
+        try {
+            return Files.getFileStore(source).equals(Files.getFileStore(target.getParent()));
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static String storeKey(Path source, Path target) {
+        try {
+            FileStore from = Files.getFileStore(source);
+            FileStore to = Files.getFileStore(target.getParent());
+            return from.name() + "|" + from.type() + "->" + to.name() + "|" + to.type();
+        } catch (IOException e) {
+            return source.getRoot() + "->" + target.getRoot();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package me.cubicmc;
 
+import com.google.gson.JsonParser;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -11,11 +13,21 @@ public class Main {
     private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
     
     public static void main(String[] args) throws IOException, InterruptedException {
+            // neutron4j daemon <socket> <gameDir>  |  neutron4j send <socket> '<json>'
+            if (args.length >= 3 && args[0].equals("daemon")) {
+                new LauncherDaemon(Paths.get(args[1]), args[2]).run();
+                return;
+            }
+            if (args.length >= 3 && args[0].equals("send")) {
+                System.out.println(LauncherDaemon.send(Paths.get(args[1]), JsonParser.parseString(args[2]).getAsJsonObject()));
+                return;
+            }
+
             Launcher.launch(
                     "1.21.5",
                     "xd",
                     "melasrosca",
-                    "C:/Program Files/Java/jdk-23/bin/java.exe",
+                    null, // runtime de Java gestionado según la versión
                     "2G",
                     "6G",
                     442,
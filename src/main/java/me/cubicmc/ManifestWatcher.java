@@ -0,0 +1,206 @@
+package me.cubicmc;
+
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Vigila version_manifest.json en segundo plano y prepara por adelantado las
+ * versiones nuevas que cumplen la política (última release y, opcionalmente,
+ * snapshots que encajan con un patrón): JSON, cliente, bibliotecas, natives y
+ * assets. Así el primer lanzamiento tras una publicación encuentra todo en el
+ * almacén.
+ *
+ * Cada consulta es condicional ({@link HttpUtils#refreshManifest()}), así que
+ * mientras el manifiesto no cambie solo cuesta una respuesta 304. Para no
+ * competir con el juego ni con instalaciones en primer plano la descarga usa
+ * threadCount conexiones (el daemon pide 2) y los assets, que son el grueso,
+ * van como la descarga diferida: un cuarto del presupuesto de memoria y el
+ * lock del almacén por lotes. No hay prioridad real: los pools de descarga
+ * corren con prioridad normal y BandwidthLimiter no distingue este tráfico.
+ */
+public class ManifestWatcher implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ManifestWatcher.class.getName());
+
+    // Dispersión del intervalo para que no consulten todos los equipos a la vez
+    private static final double JITTER = 0.2;
+    // Se escribe en la carpeta de la versión cuando el pre-staging termina entero
+    private static final String STAGED_MARKER = ".prestaged";
+
+    /**
+     * Qué versiones se preparan. snapshotPattern null no prepara snapshots.
+     */
+    public record Policy(boolean latestRelease, Pattern snapshotPattern) {
+
+        public static Policy latestReleaseOnly() {
+            return new Policy(true, null);
+        }
+
+        public static Policy withSnapshots(String regex) {
+            return new Policy(true, Pattern.compile(regex));
+        }
+    }
+
+    private final String gameDir;
+    private final Policy policy;
+    private final long intervalMillis;
+    private final int threadCount;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "manifest-watcher");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final Set<String> attempted = new LinkedHashSet<>();
+    private final List<String> staged = new ArrayList<>();
+    private volatile boolean closed;
+    private JsonObject lastManifest;
+
+    public ManifestWatcher(String gameDir, Policy policy, long intervalMillis, int threadCount) {
+        this.gameDir = gameDir;
+        this.policy = policy;
+        this.intervalMillis = intervalMillis;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Empieza a vigilar. La primera consulta se hace enseguida.
+     */
+    public void start() {
+        LOGGER.info("👀 Vigilando el manifiesto cada " + intervalMillis / 1000 + " s (release: "
+                + policy.latestRelease() + ", snapshots: " + policy.snapshotPattern() + ")");
+        schedule(0);
+    }
+
+    private void schedule(long delayMillis) {
+        if (closed) {
+            return;
+        }
+        scheduler.schedule(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "⚠️ Error vigilando el manifiesto", e);
+            }
+            long jitter = (long) (intervalMillis * JITTER * (ThreadLocalRandom.current().nextDouble() * 2 - 1));
+            schedule(intervalMillis + jitter);
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Consulta el manifiesto y prepara las versiones nuevas. Devuelve las
+     * versiones preparadas en esta consulta.
+     */
+    List<String> poll() {
+        JsonObject manifest = HttpUtils.refreshManifest();
+        if (manifest.has("Error") || !manifest.has("latest")) {
+            return List.of();
+        }
+        if (manifest == lastManifest) {
+            LOGGER.fine("Manifiesto sin cambios");
+            return List.of();
+        }
+        lastManifest = manifest;
+
+        List<String> candidates = new ArrayList<>();
+        JsonObject latest = manifest.getAsJsonObject("latest");
+        if (policy.latestRelease() && latest.has("release")) {
+            candidates.add(latest.get("release").getAsString());
+        }
+        // Solo la snapshot más reciente: un patrón amplio no debe arrastrar todo el histórico
+        if (policy.snapshotPattern() != null && latest.has("snapshot")) {
+            String snapshot = latest.get("snapshot").getAsString();
+            if (policy.snapshotPattern().matcher(snapshot).matches()) {
+                candidates.add(snapshot);
+            }
+        }
+
+        List<String> done = new ArrayList<>();
+        for (String version : candidates) {
+            if (closed) {
+                break;
+            }
+            synchronized (this) {
+                if (!attempted.add(version)) {
+                    continue;
+                }
+            }
+            if (isStaged(version)) {
+                continue;
+            }
+            try {
+                prestage(version);
+                done.add(version);
+                synchronized (this) {
+                    staged.add(version);
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "⚠️ No se pudo preparar " + version, e);
+                synchronized (this) {
+                    // Se reintenta en la próxima consulta con cambios
+                    attempted.remove(version);
+                }
+                lastManifest = null;
+            } catch (InterruptedException e) {
+                // close() durante la descarga: lo que falte se completa al lanzar
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Solo cuenta el marcador: el JSON y el jar pueden existir a medias si un
+     * close() o un cierre del proceso cortó la preparación.
+     */
+    private boolean isStaged(String version) {
+        return Files.exists(versionDir(version).resolve(STAGED_MARKER));
+    }
+
+    private Path versionDir(String version) {
+        return Paths.get(gameDir, "shared", "versions", version);
+    }
+
+    private void prestage(String version) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        LOGGER.info("⏬ Nueva versión " + version + ", preparándola en segundo plano");
+        DownloadUtil.downloadVersionData(version, gameDir);
+        DownloadUtil.downloadVersionIndex(version, gameDir);
+        // El JSON y el cliente primero: con ellos el lanzamiento ya no espera a los metadatos
+        DownloadUtil.downloadClient(version, threadCount, gameDir);
+        DownloadUtil.downloadLibraries(version, threadCount, gameDir);
+        DownloadUtil.downloadNatives(version, threadCount, gameDir);
+        DownloadUtil.downloadAssetsInBackground(version, threadCount, gameDir, DownloadUtil.AssetScope.ALL);
+        Files.writeString(versionDir(version).resolve(STAGED_MARKER), Instant.now().toString());
+        LOGGER.info("✅ Versión " + version + " preparada en " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Versiones preparadas desde que se inició el vigilante.
+     */
+    public synchronized List<String> staged() {
+        return List.copyOf(staged);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,44 @@
+package me.cubicmc;
+
+/**
+ * Coordenadas Maven de una biblioteca: "grupo:artefacto:versión[:clasificador][@extensión]".
+ */
+public record MavenCoordinate(String group, String artifact, String version, String classifier, String extension) {
+
+    public static MavenCoordinate parse(String coords) {
+        String extension = "jar";
+        int at = coords.indexOf('@');
+        if (at >= 0) {
+            extension = coords.substring(at + 1);
+            coords = coords.substring(0, at);
+        }
+        String[] parts = coords.split(":");
+        if (parts.length < 3 || parts[0].isEmpty() || parts[1].isEmpty() || parts[2].isEmpty()) {
+            throw new IllegalArgumentException("Coordenadas Maven no válidas: " + coords);
+        }
+        return new MavenCoordinate(parts[0], parts[1], parts[2], parts.length > 3 ? parts[3] : null, extension);
+    }
+
+    /**
+     * Identidad del artefacto sin la versión: dos bibliotecas con la misma clave
+     * son versiones distintas de lo mismo y solo una debe ir al classpath. Los
+     * natives de cada plataforma tienen clasificador propio y no chocan con el jar principal.
+     */
+    public String key() {
+        return group + ":" + artifact + (classifier != null ? ":" + classifier : "");
+    }
+
+    /**
+     * Ruta relativa dentro de un repositorio Maven (o de shared/libraries).
+     */
+    public String path() {
+        return group.replace('.', '/') + "/" + artifact + "/" + version + "/"
+                + artifact + "-" + version + (classifier != null ? "-" + classifier : "") + "." + extension;
+    }
+
+    @Override
+    public String toString() {
+        return group + ":" + artifact + ":" + version + (classifier != null ? ":" + classifier : "")
+                + ("jar".equals(extension) ? "" : "@" + extension);
+    }
+}
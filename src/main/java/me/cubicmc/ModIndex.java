@@ -0,0 +1,605 @@
+package me.cubicmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Índice de los metadatos de los mods (fabric.mod.json, META-INF/mods.toml y
+ * neoforge.mods.toml) para detectar antes de lanzar el juego mods duplicados,
+ * dependencias que faltan y rangos de Minecraft incompatibles.
+ *
+ * Los metadatos de cada jar se guardan en gameDir/.neutron/mods-index.json
+ * junto con su tamaño, fecha de modificación y SHA-1; en los lanzamientos
+ * siguientes solo se vuelven a leer los jars que han cambiado.
+ */
+public class ModIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger(ModIndex.class);
+
+    // Identificadores que aporta el propio loader o el juego
+    private static final Set<String> BUILTIN = Set.of("minecraft", "java", "fabricloader", "fabric-loader",
+            "mixinextras", "forge", "neoforge", "javafml", "lowcodefml", "mcp");
+
+    private static final Pattern TOML_TABLE = Pattern.compile("^\\s*\\[\\[\\s*([A-Za-z0-9_.\\-\"]+)\\s*]]\\s*$");
+    private static final Pattern TOML_KEY = Pattern.compile("^\\s*([A-Za-z0-9_\\-]+)\\s*=\\s*(.*?)\\s*$");
+    private static final Pattern MAVEN_RANGE = Pattern.compile("([\\[(])([^,\\])]*)(?:,([^\\])]*))?([])])");
+
+    /**
+     * Mod declarado por un jar. depends asocia cada dependencia obligatoria con
+     * sus rangos de versión aceptados (basta con que se cumpla uno).
+     */
+    public record ModInfo(String id, String version, String file, List<String> provides,
+                          Map<String, List<String>> depends) {
+    }
+
+    public enum Kind {
+        DUPLICATE, MISSING_DEPENDENCY, MINECRAFT_VERSION, UNREADABLE
+    }
+
+    public record Problem(Kind kind, String modId, String message) {
+    }
+
+    public record Report(List<ModInfo> mods, List<Problem> problems, int scanned, int cached, long millis) {
+
+        public boolean hasProblems() {
+            return !problems.isEmpty();
+        }
+    }
+
+    /**
+     * Resultado del análisis de un jar, tal como se guarda en la caché.
+     */
+    private record Entry(long size, long modified, String sha1, List<ModInfo> mods, String error) {
+    }
+
+    /**
+     * Analiza gameDir/mods y comprueba las dependencias contra la versión de Minecraft dada.
+     */
+    public static Report scan(String gameDir, String mcVersion, int threadCount) throws IOException {
+        long start = System.nanoTime();
+        Path modsDir = Paths.get(gameDir, "mods");
+        Path cacheFile = Paths.get(gameDir, ".neutron", "mods-index.json");
+        Map<String, Entry> cache = loadCache(cacheFile);
+
+        List<Path> jars = new ArrayList<>();
+        if (Files.isDirectory(modsDir)) {
+            try (Stream<Path> files = Files.list(modsDir)) {
+                files.filter(p -> p.getFileName().toString().endsWith(".jar"))
+                        .filter(p -> !p.getFileName().toString().startsWith("."))
+                        .filter(Files::isRegularFile)
+                        .sorted()
+                        .forEach(jars::add);
+            }
+        }
+
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        Map<String, Future<Entry>> pending = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threadCount), r -> {
+            Thread thread = new Thread(r, "mod-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (Path jar : jars) {
+                String name = jar.getFileName().toString();
+                long size = Files.size(jar);
+                long modified = Files.getLastModifiedTime(jar).toMillis();
+                Entry cached = cache.get(name);
+                if (cached != null && cached.size() == size && cached.modified() == modified) {
+                    entries.put(name, cached);
+                } else {
+                    pending.put(name, executor.submit(() -> readJar(jar, size, modified)));
+                }
+            }
+            for (Map.Entry<String, Future<Entry>> future : pending.entrySet()) {
+                try {
+                    entries.put(future.getKey(), future.getValue().get());
+                } catch (ExecutionException e) {
+                    entries.put(future.getKey(), new Entry(0, 0, null, List.of(), String.valueOf(e.getCause())));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Análisis de mods interrumpido", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (!pending.isEmpty() || cache.size() != entries.size()) {
+            saveCache(cacheFile, entries);
+        }
+
+        List<ModInfo> mods = new ArrayList<>();
+        List<Problem> problems = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().error() != null) {
+                problems.add(new Problem(Kind.UNREADABLE, null,
+                        entry.getKey() + " no se puede leer: " + entry.getValue().error()));
+            }
+            mods.addAll(entry.getValue().mods());
+        }
+        check(mods, entries, mcVersion, problems);
+
+        return new Report(mods, problems, entries.size(), entries.size() - pending.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void check(List<ModInfo> mods, Map<String, Entry> entries, String mcVersion, List<Problem> problems) {
+        Map<String, ModInfo> byId = new HashMap<>();
+        Map<String, String> provided = new HashMap<>();
+        for (ModInfo mod : mods) {
+            ModInfo previous = byId.putIfAbsent(mod.id(), mod);
+            if (previous != null && !previous.file().equals(mod.file())) {
+                problems.add(new Problem(Kind.DUPLICATE, mod.id(), "El mod " + mod.id() + " está duplicado: "
+                        + previous.file() + " (" + previous.version() + ") y " + mod.file() + " (" + mod.version() + ")"));
+            }
+            provided.putIfAbsent(mod.id(), mod.version());
+            for (String id : mod.provides()) {
+                provided.putIfAbsent(id, mod.version());
+            }
+        }
+
+        // El mismo jar copiado con otro nombre y sin metadatos reconocibles
+        Map<String, String> bySha = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            String sha1 = entry.getValue().sha1();
+            if (sha1 == null || !entry.getValue().mods().isEmpty()) {
+                continue;
+            }
+            String previous = bySha.putIfAbsent(sha1, entry.getKey());
+            if (previous != null) {
+                problems.add(new Problem(Kind.DUPLICATE, null, "Ficheros idénticos: " + previous + " y " + entry.getKey()));
+            }
+        }
+
+        boolean comparableMc = mcVersion != null && mcVersion.matches("\\d+\\.\\d+.*");
+        for (ModInfo mod : mods) {
+            for (Map.Entry<String, List<String>> dep : mod.depends().entrySet()) {
+                String depId = dep.getKey();
+                if (depId.equals("minecraft")) {
+                    if (comparableMc && !anyMatches(mcVersion, dep.getValue())) {
+                        problems.add(new Problem(Kind.MINECRAFT_VERSION, mod.id(), "El mod " + mod.id() + " (" + mod.file()
+                                + ") requiere Minecraft " + String.join(" o ", dep.getValue()) + ", se lanza " + mcVersion));
+                    }
+                } else if (!BUILTIN.contains(depId) && !provided.containsKey(depId)) {
+                    problems.add(new Problem(Kind.MISSING_DEPENDENCY, mod.id(), "El mod " + mod.id() + " (" + mod.file()
+                            + ") necesita " + depId + " " + String.join(" o ", dep.getValue()) + ", que no está instalado"));
+                }
+            }
+        }
+    }
+
+    private static Entry readJar(Path jar, long size, long modified) {
+        String name = jar.getFileName().toString();
+        try {
+            String sha1 = DownloadUtil.calculateSHA1(jar);
+            List<ModInfo> mods = new ArrayList<>();
+            try (ZipFile zip = new ZipFile(jar.toFile())) {
+                Map<String, byte[]> files = new HashMap<>();
+                for (String path : List.of("fabric.mod.json", "META-INF/mods.toml", "META-INF/neoforge.mods.toml",
+                        "META-INF/MANIFEST.MF", "META-INF/jarjar/metadata.json")) {
+                    ZipEntry entry = zip.getEntry(path);
+                    if (entry != null) {
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            files.put(path, in.readAllBytes());
+                        }
+                    }
+                }
+                List<String> nested = new ArrayList<>();
+                parse(name, files, mods, nested);
+                // Mods incluidos dentro del jar (jar-in-jar): cuentan como proporcionados
+                for (String path : nested) {
+                    ZipEntry entry = zip.getEntry(path);
+                    if (entry == null || mods.isEmpty()) {
+                        continue;
+                    }
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        List<ModInfo> inner = new ArrayList<>();
+                        parse(name, readNested(in.readAllBytes()), inner, new ArrayList<>());
+                        ModInfo outer = mods.get(0);
+                        List<String> provides = new ArrayList<>(outer.provides());
+                        for (ModInfo mod : inner) {
+                            provides.add(mod.id());
+                            provides.addAll(mod.provides());
+                        }
+                        mods.set(0, new ModInfo(outer.id(), outer.version(), outer.file(), provides, outer.depends()));
+                    }
+                }
+            }
+            return new Entry(size, modified, sha1, mods, null);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("No se pudo leer el mod {}: {}", jar, e.getMessage());
+            return new Entry(size, modified, null, List.of(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static Map<String, byte[]> readNested(byte[] jar) throws IOException {
+        Map<String, byte[]> files = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(jar))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                String path = entry.getName();
+                if (path.equals("fabric.mod.json") || path.equals("META-INF/mods.toml")
+                        || path.equals("META-INF/neoforge.mods.toml") || path.equals("META-INF/MANIFEST.MF")) {
+                    files.put(path, in.readAllBytes());
+                }
+            }
+        }
+        return files;
+    }
+
+    private static void parse(String file, Map<String, byte[]> files, List<ModInfo> mods, List<String> nested)
+            throws IOException {
+        byte[] fabric = files.get("fabric.mod.json");
+        if (fabric != null) {
+            JsonObject json = JsonParser.parseString(new String(fabric, StandardCharsets.UTF_8)).getAsJsonObject();
+            List<String> provides = new ArrayList<>();
+            if (json.has("provides")) {
+                json.getAsJsonArray("provides").forEach(e -> provides.add(e.getAsString()));
+            }
+            Map<String, List<String>> depends = new LinkedHashMap<>();
+            if (json.has("depends")) {
+                for (Map.Entry<String, JsonElement> dep : json.getAsJsonObject("depends").entrySet()) {
+                    List<String> ranges = new ArrayList<>();
+                    if (dep.getValue().isJsonArray()) {
+                        dep.getValue().getAsJsonArray().forEach(e -> ranges.add(e.getAsString()));
+                    } else {
+                        ranges.add(dep.getValue().getAsString());
+                    }
+                    depends.put(dep.getKey(), ranges);
+                }
+            }
+            if (json.has("jars")) {
+                for (JsonElement jar : json.getAsJsonArray("jars")) {
+                    nested.add(jar.getAsJsonObject().get("file").getAsString());
+                }
+            }
+            mods.add(new ModInfo(json.get("id").getAsString(),
+                    json.has("version") ? json.get("version").getAsString() : "?", file, provides, depends));
+            return;
+        }
+
+        byte[] toml = files.getOrDefault("META-INF/neoforge.mods.toml", files.get("META-INF/mods.toml"));
+        if (toml != null) {
+            String jarVersion = "?";
+            byte[] manifest = files.get("META-INF/MANIFEST.MF");
+            if (manifest != null) {
+                String value = new Manifest(new ByteArrayInputStream(manifest)).getMainAttributes()
+                        .getValue("Implementation-Version");
+                if (value != null) {
+                    jarVersion = value;
+                }
+            }
+            parseModsToml(file, new String(toml, StandardCharsets.UTF_8), jarVersion, mods);
+            byte[] jarjar = files.get("META-INF/jarjar/metadata.json");
+            if (jarjar != null) {
+                JsonObject json = JsonParser.parseString(new String(jarjar, StandardCharsets.UTF_8)).getAsJsonObject();
+                for (JsonElement jar : json.getAsJsonArray("jars")) {
+                    nested.add(jar.getAsJsonObject().get("path").getAsString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Lector mínimo de mods.toml: tablas [[mods]] y [[dependencies.id]] con
+     * claves de una línea. Las cadenas multilínea (descripciones) se saltan.
+     */
+    private static void parseModsToml(String file, String toml, String jarVersion, List<ModInfo> mods) {
+        List<Map<String, String>> modTables = new ArrayList<>();
+        Map<String, List<Map<String, String>>> depTables = new LinkedHashMap<>();
+        Map<String, String> current = null;
+        String multiline = null;
+
+        for (String line : toml.split("\\R")) {
+            if (multiline != null) {
+                if (line.contains(multiline)) {
+                    multiline = null;
+                }
+                continue;
+            }
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            Matcher table = TOML_TABLE.matcher(line);
+            if (table.matches()) {
+                String tableName = table.group(1).replace("\"", "");
+                current = new HashMap<>();
+                if (tableName.equals("mods")) {
+                    modTables.add(current);
+                } else if (tableName.startsWith("dependencies.")) {
+                    depTables.computeIfAbsent(tableName.substring("dependencies.".length()), k -> new ArrayList<>())
+                            .add(current);
+                }
+                continue;
+            }
+            if (trimmed.startsWith("[")) {
+                current = null;
+                continue;
+            }
+            Matcher key = TOML_KEY.matcher(line);
+            if (key.matches()) {
+                String value = key.group(2);
+                for (String quote : new String[]{"'''", "\"\"\""}) {
+                    if (value.startsWith(quote) && value.indexOf(quote, 3) < 0) {
+                        multiline = quote;
+                    }
+                }
+                if (current != null && multiline == null) {
+                    current.put(key.group(1), unquote(value));
+                }
+            }
+        }
+
+        for (Map<String, String> table : modTables) {
+            String id = table.get("modId");
+            if (id == null) {
+                continue;
+            }
+            String version = table.getOrDefault("version", "?");
+            if (version.equals("${file.jarVersion}")) {
+                version = jarVersion;
+            }
+            Map<String, List<String>> depends = new LinkedHashMap<>();
+            for (Map<String, String> dep : depTables.getOrDefault(id, List.of())) {
+                boolean required = "true".equals(dep.get("mandatory")) || "required".equals(dep.get("type"));
+                if (required && dep.containsKey("modId")) {
+                    // En Maven una versión sin corchetes es solo una recomendación
+                    String range = dep.getOrDefault("versionRange", "*");
+                    depends.put(dep.get("modId"), List.of(range.startsWith("[") || range.startsWith("(") ? range : "*"));
+                }
+            }
+            mods.add(new ModInfo(id, version, file, List.of(), depends));
+        }
+    }
+
+    private static String unquote(String value) {
+        int comment = value.indexOf(" #");
+        if (!value.startsWith("\"") && !value.startsWith("'") && comment >= 0) {
+            value = value.substring(0, comment).trim();
+        }
+        if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')) {
+            int end = value.indexOf(value.charAt(0), 1);
+            return end > 0 ? value.substring(1, end) : value.substring(1);
+        }
+        return value;
+    }
+
+    private static boolean anyMatches(String version, List<String> ranges) {
+        for (String range : ranges) {
+            if (matches(version, range)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Comprueba una versión contra un rango de Maven ("[1.20,1.21)") o un
+     * predicado de Fabric ("~1.20.1", ">=1.20 <1.21", "1.20.x").
+     */
+    static boolean matches(String version, String range) {
+        range = range.trim();
+        if (range.isEmpty() || range.equals("*")) {
+            return true;
+        }
+        if (range.startsWith("[") || range.startsWith("(")) {
+            Matcher matcher = MAVEN_RANGE.matcher(range);
+            boolean any = false;
+            while (matcher.find()) {
+                any = true;
+                String low = matcher.group(2).trim();
+                String high = matcher.group(3) == null ? low : matcher.group(3).trim();
+                boolean lowOk = low.isEmpty() || (matcher.group(1).equals("[")
+                        ? compare(version, low) >= 0 : compare(version, low) > 0);
+                boolean highOk = high.isEmpty() || (matcher.group(4).equals("]")
+                        ? compare(version, high) <= 0 : compare(version, high) < 0);
+                if (lowOk && highOk) {
+                    return true;
+                }
+            }
+            return !any;
+        }
+        for (String term : range.split("\\s+")) {
+            if (!matchesTerm(version, term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesTerm(String version, String term) {
+        String op = "=";
+        for (String candidate : new String[]{">=", "<=", ">", "<", "=", "~", "^"}) {
+            if (term.startsWith(candidate)) {
+                op = candidate;
+                term = term.substring(candidate.length());
+                break;
+            }
+        }
+        String[] parts = term.split("\\.");
+        int wildcard = -1;
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i].equalsIgnoreCase("x") || parts[i].equals("*")) {
+                wildcard = i;
+                break;
+            }
+        }
+        if (wildcard >= 0) {
+            // 1.20.x: coinciden las partes anteriores al comodín
+            String[] actual = version.split("[.\\-+]");
+            for (int i = 0; i < wildcard; i++) {
+                if (i >= actual.length || !actual[i].equals(parts[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        int cmp = compare(version, term);
+        switch (op) {
+            case ">=":
+                return cmp >= 0;
+            case "<=":
+                return cmp <= 0;
+            case ">":
+                return cmp > 0;
+            case "<":
+                return cmp < 0;
+            case "~":
+                return cmp >= 0 && compare(version, bump(parts, Math.min(1, parts.length - 1))) < 0;
+            case "^":
+                return cmp >= 0 && compare(version, bump(parts, 0)) < 0;
+            default:
+                return cmp == 0;
+        }
+    }
+
+    private static String bump(String[] parts, int index) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i <= index; i++) {
+            String part = parts[i].replaceAll("\\D.*", "");
+            long value = part.isEmpty() ? 0 : Long.parseLong(part);
+            if (i > 0) {
+                result.append('.');
+            }
+            result.append(i == index ? value + 1 : value);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Compara versiones por componentes numéricos; una versión con sufijo de
+     * prelanzamiento ("-rc1", "-pre2") es menor que la misma sin él.
+     */
+    static int compare(String a, String b) {
+        String[] mainA = a.split("\\+")[0].split("-", 2);
+        String[] mainB = b.split("\\+")[0].split("-", 2);
+        String[] partsA = mainA[0].split("\\.");
+        String[] partsB = mainB[0].split("\\.");
+        for (int i = 0; i < Math.max(partsA.length, partsB.length); i++) {
+            String pa = i < partsA.length ? partsA[i] : "0";
+            String pb = i < partsB.length ? partsB[i] : "0";
+            int cmp;
+            if (pa.matches("\\d+") && pb.matches("\\d+")) {
+                cmp = Long.compare(Long.parseLong(pa), Long.parseLong(pb));
+            } else {
+                cmp = pa.compareTo(pb);
+            }
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        if (mainA.length != mainB.length) {
+            return mainA.length < mainB.length ? 1 : -1;
+        }
+        return mainA.length == 2 ? mainA[1].compareTo(mainB[1]) : 0;
+    }
+
+    private static Map<String, Entry> loadCache(Path cacheFile) {
+        Map<String, Entry> cache = new HashMap<>();
+        if (!Files.exists(cacheFile)) {
+            return cache;
+        }
+        try {
+            JsonObject json = JsonParser.parseString(Files.readString(cacheFile)).getAsJsonObject();
+            for (Map.Entry<String, JsonElement> element : json.entrySet()) {
+                JsonObject entry = element.getValue().getAsJsonObject();
+                List<ModInfo> mods = new ArrayList<>();
+                for (JsonElement modElement : entry.getAsJsonArray("mods")) {
+                    JsonObject mod = modElement.getAsJsonObject();
+                    List<String> provides = new ArrayList<>();
+                    mod.getAsJsonArray("provides").forEach(e -> provides.add(e.getAsString()));
+                    Map<String, List<String>> depends = new LinkedHashMap<>();
+                    for (Map.Entry<String, JsonElement> dep : mod.getAsJsonObject("depends").entrySet()) {
+                        List<String> ranges = new ArrayList<>();
+                        dep.getValue().getAsJsonArray().forEach(e -> ranges.add(e.getAsString()));
+                        depends.put(dep.getKey(), ranges);
+                    }
+                    mods.add(new ModInfo(mod.get("id").getAsString(), mod.get("version").getAsString(),
+                            element.getKey(), provides, depends));
+                }
+                cache.put(element.getKey(), new Entry(entry.get("size").getAsLong(), entry.get("modified").getAsLong(),
+                        entry.has("sha1") ? entry.get("sha1").getAsString() : null, mods,
+                        entry.has("error") ? entry.get("error").getAsString() : null));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Índice de mods corrupto, se regenera: {}", e.getMessage());
+            cache.clear();
+        }
+        return cache;
+    }
+
+    private static void saveCache(Path cacheFile, Map<String, Entry> entries) {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, Entry> element : entries.entrySet()) {
+            Entry entry = element.getValue();
+            JsonObject object = new JsonObject();
+            object.addProperty("size", entry.size());
+            object.addProperty("modified", entry.modified());
+            if (entry.sha1() != null) {
+                object.addProperty("sha1", entry.sha1());
+            }
+            if (entry.error() != null) {
+                object.addProperty("error", entry.error());
+            }
+            JsonArray mods = new JsonArray();
+            for (ModInfo mod : entry.mods()) {
+                JsonObject modJson = new JsonObject();
+                modJson.addProperty("id", mod.id());
+                modJson.addProperty("version", mod.version());
+                JsonArray provides = new JsonArray();
+                mod.provides().forEach(provides::add);
+                modJson.add("provides", provides);
+                JsonObject depends = new JsonObject();
+                for (Map.Entry<String, List<String>> dep : mod.depends().entrySet()) {
+                    JsonArray ranges = new JsonArray();
+                    dep.getValue().forEach(ranges::add);
+                    depends.add(dep.getKey(), ranges);
+                }
+                modJson.add("depends", depends);
+                mods.add(modJson);
+            }
+            object.add("mods", mods);
+            json.add(element.getKey(), object);
+        }
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            Files.writeString(temp, json.toString(), StandardCharsets.UTF_8);
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("No se pudo guardar el índice de mods: {}", e.getMessage());
+        }
+    }
+}
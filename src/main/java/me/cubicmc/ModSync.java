@@ -0,0 +1,228 @@
+package me.cubicmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Actualización de la carpeta mods contra una API compatible con Modrinth.
+ * Cada jar se identifica por su hash (SHA-1 y SHA-512 en una sola lectura),
+ * las consultas se agrupan en lotes en /version_files/update y las
+ * actualizaciones se descargan con la verificación SHA-1 de DownloadUtil.
+ */
+public class ModSync {
+    private static final Logger LOGGER = Logger.getLogger(ModSync.class.getName());
+
+    // Hashes por petición a /version_files/update
+    private static final int BATCH_SIZE = 100;
+
+    private static volatile String apiBaseUrl = "https://api.modrinth.com/v2";
+
+    /**
+     * Cambia la URL base de la API (por ejemplo un espejo o un servidor de pruebas local).
+     */
+    public static void setApiBaseUrl(String url) {
+        apiBaseUrl = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Actualización disponible para un jar de la carpeta mods.
+     */
+    public record Update(String file, String version, String fileName, String url, String sha1, String sha512,
+                         long size) {
+    }
+
+    public record Result(int scanned, int unknown, List<Update> updates, int applied, long millis) {
+    }
+
+    private record Hashes(String sha1, String sha512) {
+    }
+
+    /**
+     * Busca actualizaciones para los mods de gameDir/mods y, si apply es true,
+     * las descarga y sustituye los jars antiguos.
+     */
+    public static Result sync(String gameDir, String mcVersion, Launcher.ModLoader loader, int threadCount,
+                              boolean apply) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        Path modsDir = Paths.get(gameDir, "mods").toAbsolutePath().normalize();
+        List<Path> jars = new ArrayList<>();
+        if (Files.isDirectory(modsDir)) {
+            try (Stream<Path> files = Files.list(modsDir)) {
+                files.filter(p -> p.getFileName().toString().endsWith(".jar"))
+                        .filter(Files::isRegularFile)
+                        .sorted()
+                        .forEach(jars::add);
+            }
+        }
+
+        try (DownloadUtil.CloseableExecutorService ces =
+                     new DownloadUtil.CloseableExecutorService(Executors.newFixedThreadPool(threadCount))) {
+            // 1) Hashes de todos los jars en paralelo
+            Map<Path, Future<Hashes>> pending = new LinkedHashMap<>();
+            for (Path jar : jars) {
+                pending.put(jar, ces.get().submit(() -> hash(jar)));
+            }
+            Map<String, Path> bySha512 = new LinkedHashMap<>();
+            Map<Path, Hashes> hashes = new LinkedHashMap<>();
+            for (Map.Entry<Path, Future<Hashes>> entry : pending.entrySet()) {
+                Hashes result = get(entry.getValue());
+                hashes.put(entry.getKey(), result);
+                bySha512.put(result.sha512(), entry.getKey());
+            }
+
+            // 2) Consultas por lotes
+            List<Update> updates = new ArrayList<>();
+            List<String> all = new ArrayList<>(bySha512.keySet());
+            int known = 0;
+            for (int i = 0; i < all.size(); i += BATCH_SIZE) {
+                JsonObject response = queryUpdates(all.subList(i, Math.min(all.size(), i + BATCH_SIZE)),
+                        mcVersion, loader);
+                known += response.size();
+                for (Map.Entry<String, JsonElement> entry : response.entrySet()) {
+                    Path jar = bySha512.get(entry.getKey());
+                    Update update = jar == null ? null : toUpdate(jar, hashes.get(jar), entry.getValue().getAsJsonObject());
+                    if (update != null) {
+                        updates.add(update);
+                    }
+                }
+            }
+            LOGGER.info("🔎 Mods analizados: " + jars.size() + ", reconocidos: " + known
+                    + ", con actualización: " + updates.size());
+
+            // 3) Descargas verificadas
+            int applied = 0;
+            if (apply && !updates.isEmpty()) {
+                List<Future<?>> downloads = new ArrayList<>();
+                for (Update update : updates) {
+                    downloads.add(ces.get().submit(() -> {
+                        applyUpdate(modsDir, update);
+                        return null;
+                    }));
+                }
+                for (Future<?> download : downloads) {
+                    get(download);
+                    applied++;
+                }
+            }
+            return new Result(jars.size(), jars.size() - known, updates, applied, System.currentTimeMillis() - start);
+        }
+    }
+
+    private static JsonObject queryUpdates(List<String> sha512s, String mcVersion, Launcher.ModLoader loader)
+            throws IOException {
+        JsonObject body = new JsonObject();
+        JsonArray hashes = new JsonArray();
+        sha512s.forEach(hashes::add);
+        body.add("hashes", hashes);
+        body.addProperty("algorithm", "sha512");
+        if (loader != null && loader != Launcher.ModLoader.VANILLA) {
+            JsonArray loaders = new JsonArray();
+            loaders.add(loader.name().toLowerCase(Locale.ROOT));
+            body.add("loaders", loaders);
+        }
+        JsonArray gameVersions = new JsonArray();
+        gameVersions.add(mcVersion);
+        body.add("game_versions", gameVersions);
+
+        JsonObject response = HttpUtils.postJson(apiBaseUrl + "/version_files/update", body);
+        if (response.has("Error")) {
+            throw new IOException("Error consultando actualizaciones de mods: " + response.get("Error").getAsString());
+        }
+        return response;
+    }
+
+    /**
+     * Devuelve la actualización si el fichero principal de la versión más
+     * reciente es distinto del jar instalado.
+     */
+    private static Update toUpdate(Path jar, Hashes current, JsonObject version) {
+        JsonObject primary = null;
+        for (JsonElement element : version.getAsJsonArray("files")) {
+            JsonObject file = element.getAsJsonObject();
+            if (primary == null || (file.has("primary") && file.get("primary").getAsBoolean())) {
+                primary = file;
+            }
+        }
+        if (primary == null) {
+            return null;
+        }
+        JsonObject fileHashes = primary.getAsJsonObject("hashes");
+        String sha1 = fileHashes.get("sha1").getAsString();
+        if (sha1.equalsIgnoreCase(current.sha1())) {
+            return null;
+        }
+        return new Update(jar.getFileName().toString(),
+                version.has("version_number") ? version.get("version_number").getAsString() : "?",
+                primary.get("filename").getAsString(), primary.get("url").getAsString(), sha1,
+                fileHashes.has("sha512") ? fileHashes.get("sha512").getAsString() : null,
+                primary.has("size") ? primary.get("size").getAsLong() : -1);
+    }
+
+    private static void applyUpdate(Path modsDir, Update update) throws IOException, InterruptedException {
+        Path target = modsDir.resolve(update.fileName()).normalize();
+        if (!target.getParent().equals(modsDir)) {
+            throw new IOException("Nombre de fichero no válido en la actualización: " + update.fileName());
+        }
+        // El sufijo .download evita que el jar a medias se cargue o se indexe
+        Path temp = modsDir.resolve(update.fileName() + ".download");
+        DownloadUtil.downloadFile(update.url(), temp.toString(), update.sha1());
+        if (update.sha512() != null && !update.sha512().equalsIgnoreCase(hash(temp).sha512())) {
+            Files.deleteIfExists(temp);
+            throw new IOException("SHA-512 incorrecto para " + update.fileName());
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (!update.file().equals(update.fileName())) {
+            Files.deleteIfExists(modsDir.resolve(update.file()));
+        }
+        LOGGER.info("✅ " + update.file() + " → " + update.fileName() + " (" + update.version() + ")");
+    }
+
+    private static Hashes hash(Path file) throws IOException {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            MessageDigest sha512 = MessageDigest.getInstance("SHA-512");
+            try (InputStream in = Files.newInputStream(file)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    sha1.update(buffer, 0, read);
+                    sha512.update(buffer, 0, read);
+                }
+            }
+            return new Hashes(DownloadUtil.toHex(sha1.digest()), DownloadUtil.toHex(sha512.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package me.cubicmc;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Política de recursos del proceso del juego en Linux, para equipos con
+ * varias instancias: núcleos fijos (taskset), prioridad de CPU (nice) y de
+ * disco (ionice) y, opcionalmente, límites de memoria y CPU con cgroup v2.
+ * La JVM recibe -XX:ActiveProcessorCount acorde a los núcleos asignados, y
+ * {@link JvmTuning} calcula sus hilos con esos núcleos y esa memoria.
+ *
+ * El cgroup se crea con sus límites antes de arrancar el juego y el propio
+ * comando entra en él antes del exec de la JVM, así que el arranque también
+ * queda limitado.
+ *
+ * En otros sistemas la política se ignora con un aviso.
+ */
+public class ResourcePolicy {
+
+    private static final Logger LOGGER = LogManager.getLogger(ResourcePolicy.class);
+
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+    // Hoja a la que se mueve el launcher para poder habilitar controladores en su cgroup
+    private static final String LAUNCHER_LEAF = "neutron-launcher";
+    private static final AtomicInteger CGROUP_COUNTER = new AtomicInteger();
+    // neutron-<pid del launcher>-<contador>
+    private static final Pattern CGROUP_NAME = Pattern.compile("neutron-(\\d+)-\\d+");
+    // Periodo de cpu.max en microsegundos (el valor por defecto del kernel)
+    private static final long CPU_PERIOD_MICROS = 100_000;
+
+    private List<Integer> cpus = List.of();
+    private Integer nice;
+    private Integer ioPriority;
+    private long memoryMax;
+    private int cpuPercent;
+    private Path cgroupParent;
+
+    /**
+     * Núcleos en los que se ejecuta el juego, con el formato de taskset: "0-3,8,10".
+     */
+    public ResourcePolicy cpus(String spec) {
+        TreeSet<Integer> parsed = new TreeSet<>();
+        for (String part : spec.split(",")) {
+            String range = part.trim();
+            if (range.isEmpty()) {
+                continue;
+            }
+            int dash = range.indexOf('-');
+            int from = Integer.parseInt(dash < 0 ? range : range.substring(0, dash));
+            int to = dash < 0 ? from : Integer.parseInt(range.substring(dash + 1));
+            if (from < 0 || to < from) {
+                throw new IllegalArgumentException("Lista de núcleos no válida: " + spec);
+            }
+            for (int cpu = from; cpu <= to; cpu++) {
+                parsed.add(cpu);
+            }
+        }
+        this.cpus = List.copyOf(parsed);
+        return this;
+    }
+
+    /**
+     * Prioridad de CPU, de -20 (máxima) a 19 (mínima). Valores negativos requieren privilegios.
+     */
+    public ResourcePolicy nice(int nice) {
+        if (nice < -20 || nice > 19) {
+            throw new IllegalArgumentException("nice fuera de rango: " + nice);
+        }
+        this.nice = nice;
+        return this;
+    }
+
+    /**
+     * Prioridad de disco dentro de la clase best-effort, de 0 (máxima) a 7 (mínima).
+     */
+    public ResourcePolicy ioPriority(int ioPriority) {
+        if (ioPriority < 0 || ioPriority > 7) {
+            throw new IllegalArgumentException("Prioridad de E/S fuera de rango: " + ioPriority);
+        }
+        this.ioPriority = ioPriority;
+        return this;
+    }
+
+    /**
+     * Límite de memoria del cgroup (memory.max), con el formato de -Xmx. Incluye
+     * la caché de páginas del proceso, así que debe superar holgadamente el heap.
+     */
+    public ResourcePolicy memoryMax(String memoryMax) {
+        this.memoryMax = JvmTuning.parseMemory(memoryMax);
+        return this;
+    }
+
+    /**
+     * Límite de CPU del cgroup (cpu.max) en porcentaje de un núcleo: 250 son 2,5 núcleos.
+     */
+    public ResourcePolicy cpuPercent(int cpuPercent) {
+        this.cpuPercent = cpuPercent;
+        return this;
+    }
+
+    /**
+     * cgroup delegado bajo el que se crean los de cada lanzamiento. Por defecto
+     * el cgroup del propio launcher, que debe tener delegación (systemd-run
+     * --user --scope -p Delegate=yes, o un servicio con Delegate=yes). En ese
+     * caso el launcher se mueve a la hoja neutron-launcher: cgroup v2 no deja
+     * habilitar controladores en un cgroup que contiene procesos.
+     */
+    public ResourcePolicy cgroupParent(Path cgroupParent) {
+        this.cgroupParent = cgroupParent;
+        return this;
+    }
+
+    public List<Integer> getCpus() {
+        return cpus;
+    }
+
+    public long getMemoryMax() {
+        return memoryMax;
+    }
+
+    public int getCpuPercent() {
+        return cpuPercent;
+    }
+
+    /**
+     * Núcleos efectivos para la JVM: los asignados o, si solo hay cuota, la cuota redondeada hacia arriba.
+     */
+    public int activeProcessorCount() {
+        int available = Runtime.getRuntime().availableProcessors();
+        int active = cpus.isEmpty() ? available : Math.min(available, cpus.size());
+        if (cpuPercent > 0) {
+            active = Math.min(active, Math.max(1, (cpuPercent + 99) / 100));
+        } else if (cpus.isEmpty()) {
+            return 0;
+        }
+        return active;
+    }
+
+    /**
+     * Ajusta el host que ve {@link JvmTuning} a los núcleos y la memoria de la política.
+     */
+    public JvmTuning.Host limit(JvmTuning.Host host) {
+        int cores = activeProcessorCount() > 0 ? Math.min(host.cores(), activeProcessorCount()) : host.cores();
+        long memory = memoryMax > 0 && (host.totalMemory() <= 0 || memoryMax < host.totalMemory())
+                ? memoryMax : host.totalMemory();
+        return new JvmTuning.Host(cores, memory, host.javaMajor(), host.os());
+    }
+
+    /**
+     * Flags de la JVM que dependen de la política.
+     */
+    public List<String> jvmFlags() {
+        int active = activeProcessorCount();
+        return active > 0 ? List.of("-XX:ActiveProcessorCount=" + active) : List.of();
+    }
+
+    /**
+     * Antepone ionice, nice y taskset al comando. Cada herramienta hace exec
+     * del siguiente programa, así que el PID final es el de la JVM.
+     */
+    public List<String> wrap(List<String> command) {
+        return wrap(command, null);
+    }
+
+    /**
+     * Como {@link #wrap(List)}, y si hay cgroup el proceso entra en él con
+     * /bin/sh antes de ejecutar nada más.
+     */
+    public List<String> wrap(List<String> command, Cgroup cgroup) {
+        if (!isLinux()) {
+            LOGGER.warn("La política de recursos solo se aplica en Linux, se ignora");
+            return command;
+        }
+        List<String> wrapped = new ArrayList<>();
+        if (cgroup != null) {
+            // $0 es la ruta de cgroup.procs; si la escritura falla el juego arranca sin límites
+            wrapped.addAll(List.of("/bin/sh", "-c", "echo $$ > \"$0\"; exec \"$@\"",
+                    cgroup.getDir().resolve("cgroup.procs").toString()));
+        }
+        if (ioPriority != null) {
+            if (onPath("ionice")) {
+                wrapped.addAll(List.of("ionice", "-c", "2", "-n", String.valueOf(ioPriority)));
+            } else {
+                LOGGER.warn("ionice no está disponible, se omite la prioridad de E/S");
+            }
+        }
+        if (nice != null) {
+            if (onPath("nice")) {
+                wrapped.addAll(List.of("nice", "-n", String.valueOf(nice)));
+            } else {
+                LOGGER.warn("nice no está disponible, se omite la prioridad de CPU");
+            }
+        }
+        if (!cpus.isEmpty()) {
+            if (onPath("taskset")) {
+                wrapped.addAll(List.of("taskset", "-c", cpuList()));
+            } else {
+                LOGGER.warn("taskset no está disponible, el juego no se fijará a los núcleos {}", cpuList());
+            }
+        }
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    /**
+     * Crea el cgroup del lanzamiento con los límites, para pasarlo a
+     * {@link #wrap(List, Cgroup)}. Devuelve null si la política no tiene
+     * límites o el sistema no lo permite; el juego sigue funcionando sin ellos.
+     */
+    public Cgroup createCgroup() {
+        if ((memoryMax <= 0 && cpuPercent <= 0) || !isLinux()) {
+            return null;
+        }
+        Path dir = null;
+        try {
+            Path parent = cgroupParent != null ? cgroupParent : defaultParent();
+            if (!Files.exists(parent.resolve("cgroup.controllers"))) {
+                LOGGER.warn("cgroup v2 no disponible en {}, se omiten los límites", parent);
+                return null;
+            }
+            enableControllers(parent);
+            sweepStale(parent);
+            dir = parent.resolve("neutron-" + ProcessHandle.current().pid() + "-" + CGROUP_COUNTER.incrementAndGet());
+            Files.createDirectories(dir);
+            if (memoryMax > 0) {
+                Files.writeString(dir.resolve("memory.max"), String.valueOf(memoryMax));
+            }
+            if (cpuPercent > 0) {
+                Files.writeString(dir.resolve("cpu.max"), cpuPercent * CPU_PERIOD_MICROS / 100 + " " + CPU_PERIOD_MICROS);
+            }
+            LOGGER.info("cgroup {} preparado (memory.max={} MB, cpu.max={}%)", dir, memoryMax >> 20, cpuPercent);
+            return new Cgroup(dir);
+        } catch (IOException e) {
+            LOGGER.warn("No se pudo crear el cgroup del juego, se omiten los límites: {}", e.getMessage());
+            if (dir != null) {
+                new Cgroup(dir).close();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Borra los cgroup vacíos de launchers que ya no existen, por ejemplo de un
+     * daemon que se cerró con el juego abierto. rmdir falla si aún tienen procesos.
+     */
+    private static void sweepStale(Path parent) {
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(parent, "neutron-*")) {
+            for (Path dir : dirs) {
+                Matcher matcher = CGROUP_NAME.matcher(dir.getFileName().toString());
+                if (matcher.matches() && ProcessHandle.of(Long.parseLong(matcher.group(1))).isEmpty()) {
+                    new Cgroup(dir).close();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("No se pudieron revisar los cgroup de {}: {}", parent, e.getMessage());
+        }
+    }
+
+    /**
+     * cgroup de un lanzamiento; se elimina cuando el juego termina.
+     */
+    public static class Cgroup implements AutoCloseable {
+        private final Path dir;
+
+        Cgroup(Path dir) {
+            this.dir = dir;
+        }
+
+        public Path getDir() {
+            return dir;
+        }
+
+        /**
+         * Espera a que el proceso entre en el cgroup: el comando se mueve a sí
+         * mismo al arrancar. Devuelve false si no lo hace dentro del plazo.
+         */
+        public boolean awaitProcess(long pid, long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            do {
+                try {
+                    if (Files.readAllLines(dir.resolve("cgroup.procs")).contains(String.valueOf(pid))) {
+                        return true;
+                    }
+                } catch (IOException e) {
+                    return false;
+                }
+                Thread.sleep(10);
+            } while (System.currentTimeMillis() < deadline);
+            return false;
+        }
+
+        /**
+         * Elimina el cgroup ya si el proceso no llegó a arrancar o terminó, y si
+         * no cuando termine: mientras tenga procesos el kernel no deja borrarlo.
+         */
+        public void closeAfter(Process process) {
+            if (process == null || !process.isAlive()) {
+                close();
+            } else {
+                process.onExit().thenRun(this::close);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                // Un cgroup vacío se borra con rmdir aunque contenga los ficheros de control
+                Files.deleteIfExists(dir);
+            } catch (IOException e) {
+                LOGGER.debug("No se pudo eliminar el cgroup {}: {}", dir, e.getMessage());
+            }
+        }
+    }
+
+    private void enableControllers(Path parent) throws IOException {
+        List<String> needed = new ArrayList<>();
+        if (memoryMax > 0) {
+            needed.add("memory");
+        }
+        if (cpuPercent > 0) {
+            needed.add("cpu");
+        }
+        List<String> enabled = List.of(
+                Files.readString(parent.resolve("cgroup.subtree_control")).trim().split("\\s+"));
+        for (String controller : needed) {
+            if (!enabled.contains(controller)) {
+                try {
+                    Files.writeString(parent.resolve("cgroup.subtree_control"), "+" + controller);
+                } catch (IOException e) {
+                    throw new IOException("no se pudo habilitar " + controller + " en " + parent
+                            + " (¿cgroup sin delegación o con otros procesos?): " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * cgroup del launcher como padre de los del juego. Si el launcher está
+     * directamente en él, se mueve antes a la hoja neutron-launcher.
+     */
+    private static Path defaultParent() throws IOException {
+        Path own = ownCgroup();
+        if (own.getFileName() != null && own.getFileName().toString().equals(LAUNCHER_LEAF)) {
+            return own.getParent();
+        }
+        // La raíz no tiene la restricción de "sin procesos internos"
+        if (own.equals(CGROUP_ROOT)) {
+            return own;
+        }
+        Path leaf = own.resolve(LAUNCHER_LEAF);
+        Files.createDirectories(leaf);
+        // Escribir el PID mueve el proceso entero, con todos sus hilos
+        Files.writeString(leaf.resolve("cgroup.procs"), String.valueOf(ProcessHandle.current().pid()));
+        LOGGER.info("Launcher movido al cgroup {} para delegar los límites", leaf);
+        return own;
+    }
+
+    private static Path ownCgroup() throws IOException {
+        // cgroup v2: una sola línea "0::/ruta"
+        for (String line : Files.readAllLines(Paths.get("/proc/self/cgroup"))) {
+            if (line.startsWith("0::")) {
+                return CGROUP_ROOT.resolve(line.substring(3).replaceFirst("^/", ""));
+            }
+        }
+        throw new IOException("El launcher no está en una jerarquía cgroup v2");
+    }
+
+    private String cpuList() {
+        StringBuilder list = new StringBuilder();
+        for (int cpu : cpus) {
+            list.append(list.length() == 0 ? "" : ",").append(cpu);
+        }
+        return list.toString();
+    }
+
+    private static boolean isLinux() {
+        return System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("linux");
+    }
+
+    private static boolean onPath(String tool) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return false;
+        }
+        for (String dir : path.split(File.pathSeparator)) {
+            if (Files.isExecutable(Paths.get(dir, tool))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "cpus=" + (cpus.isEmpty() ? "*" : cpuList()) + ", nice=" + nice + ", io=" + ioPriority
+                + ", memoryMax=" + (memoryMax >> 20) + "M, cpu=" + cpuPercent + "%";
+    }
+}
@@ -0,0 +1,323 @@
+package me.cubicmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Instalación y lanzamiento de servidores dedicados con el mismo almacén
+ * compartido que el cliente. Los jars de servidor en formato bundler (1.18+)
+ * se desempaquetan en shared/libraries y se lanzan con un classpath normal.
+ */
+public class ServerLauncher {
+    private static final Logger LOGGER = Logger.getLogger(ServerLauncher.class.getName());
+
+    /**
+     * Ruta del descriptor que se guarda al instalar el servidor de una versión.
+     */
+    public static Path getDescriptorPath(String version, String gameDir) {
+        return Paths.get(gameDir, "shared", "versions", version, version + "-server.json").toAbsolutePath().normalize();
+    }
+
+    /**
+     * Descarga y verifica el jar de servidor de la versión y, si es un bundler,
+     * extrae sus bibliotecas al almacén compartido.
+     */
+    public static void downloadServer(String version, int threadCount, String gameDir)
+            throws IOException, InterruptedException {
+        try (var _ = StoreLock.shared(gameDir)) {
+            doDownloadServer(version, threadCount, gameDir);
+        }
+    }
+
+    private static void doDownloadServer(String version, int threadCount, String gameDir)
+            throws IOException, InterruptedException {
+        JsonObject versionData = HttpUtils.getVersionData(version);
+        if (versionData == null || versionData.has("Error")) {
+            throw new IOException("Error obteniendo datos de versión para " + version);
+        }
+        JsonObject downloads = versionData.getAsJsonObject("downloads");
+        if (downloads == null || !downloads.has("server")) {
+            throw new IOException("La versión " + version + " no publica jar de servidor");
+        }
+
+        JsonObject server = downloads.getAsJsonObject("server");
+        String url = server.get("url").getAsString();
+        String sha1 = server.get("sha1").getAsString();
+        long size = server.get("size").getAsLong();
+
+        Path versionFolder = Paths.get(gameDir, "shared", "versions", version).toAbsolutePath().normalize();
+        Path serverJar = versionFolder.resolve(version + "-server.jar");
+        Files.createDirectories(versionFolder);
+
+        try (DownloadUtil.CloseableExecutorService ces =
+                     new DownloadUtil.CloseableExecutorService(Executors.newFixedThreadPool(threadCount))) {
+            if (Files.exists(serverJar) && Files.size(serverJar) == size
+                    && sha1.equalsIgnoreCase(DownloadUtil.calculateSHA1(serverJar))) {
+                LOGGER.info("✅ server.jar ya existe y es válido: " + serverJar);
+            } else {
+                LOGGER.info("⬇️ Descargando server.jar para versión " + version);
+                DownloadUtil.downloadFileChunked(url, serverJar, sha1, size, ces.get());
+                LOGGER.info("✅ server.jar descargado y verificado: " + serverJar);
+            }
+        }
+
+        JsonObject descriptor = unpackBundler(version, serverJar, gameDir);
+        descriptor.addProperty("id", version);
+        descriptor.addProperty("sha1", sha1);
+        descriptor.addProperty("javaComponent", JavaRuntimeManager.getComponent(versionData, null));
+        Files.writeString(getDescriptorPath(version, gameDir), descriptor.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Extrae META-INF/libraries y META-INF/versions de un jar bundler. Para jars
+     * antiguos (sin bundler) devuelve un descriptor que lanza el jar con -jar.
+     */
+    private static JsonObject unpackBundler(String version, Path serverJar, String gameDir) throws IOException {
+        JsonObject descriptor = new JsonObject();
+        JsonArray libraries = new JsonArray();
+        descriptor.add("libraries", libraries);
+
+        try (ZipFile zip = new ZipFile(serverJar.toFile())) {
+            ZipEntry versionsList = zip.getEntry("META-INF/versions.list");
+            ZipEntry mainClassEntry = zip.getEntry("META-INF/main-class");
+            if (versionsList == null || mainClassEntry == null) {
+                descriptor.addProperty("bundled", false);
+                descriptor.addProperty("jar", serverJar.toString());
+                return descriptor;
+            }
+
+            Path librariesDir = Paths.get(gameDir, "shared", "libraries").toAbsolutePath().normalize();
+            Path unbundledDir = serverJar.resolveSibling("server");
+            int extracted = 0;
+
+            ZipEntry librariesList = zip.getEntry("META-INF/libraries.list");
+            if (librariesList != null) {
+                for (String[] entry : readList(zip, librariesList)) {
+                    Path dest = librariesDir.resolve(entry[2]).normalize();
+                    if (extractVerified(zip, "META-INF/libraries/" + entry[2], dest, entry[0])) {
+                        extracted++;
+                    }
+                    JsonObject artifact = new JsonObject();
+                    artifact.addProperty("path", entry[2]);
+                    artifact.addProperty("sha1", entry[0]);
+                    JsonObject libDownloads = new JsonObject();
+                    libDownloads.add("artifact", artifact);
+                    JsonObject lib = new JsonObject();
+                    lib.addProperty("name", entry[1]);
+                    lib.add("downloads", libDownloads);
+                    libraries.add(lib);
+                }
+            }
+
+            String jar = null;
+            for (String[] entry : readList(zip, versionsList)) {
+                Path dest = unbundledDir.resolve(entry[2]).normalize();
+                if (extractVerified(zip, "META-INF/versions/" + entry[2], dest, entry[0])) {
+                    extracted++;
+                }
+                jar = dest.toString();
+            }
+
+            String mainClass;
+            try (InputStream in = zip.getInputStream(mainClassEntry)) {
+                mainClass = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+
+            LOGGER.info("📦 Servidor bundler " + version + ": " + libraries.size() + " bibliotecas, "
+                    + extracted + " ficheros extraídos, clase principal " + mainClass);
+            descriptor.addProperty("bundled", true);
+            descriptor.addProperty("jar", jar);
+            descriptor.addProperty("mainClass", mainClass);
+            return descriptor;
+        }
+    }
+
+    private static List<String[]> readList(ZipFile zip, ZipEntry entry) throws IOException {
+        List<String[]> result = new ArrayList<>();
+        try (InputStream in = zip.getInputStream(entry)) {
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\\R")) {
+                // Formato: sha1 <tab> id <tab> ruta
+                String[] parts = line.split("\t");
+                if (parts.length == 3) {
+                    result.add(parts);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean extractVerified(ZipFile zip, String name, Path dest, String sha1) throws IOException {
+        if (name.contains("..")) {
+            throw new IOException("Ruta no válida en el bundler: " + name);
+        }
+        if (Files.exists(dest) && sha1.equalsIgnoreCase(DownloadUtil.calculateSHA1(dest))) {
+            return false;
+        }
+        ZipEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            throw new IOException("Entrada no encontrada en el bundler: " + name);
+        }
+        Files.createDirectories(dest.getParent());
+        Path temp = dest.resolveSibling(dest.getFileName() + ".part");
+        try (InputStream in = zip.getInputStream(entry)) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        String actual = DownloadUtil.calculateSHA1(temp);
+        if (!actual.equalsIgnoreCase(sha1)) {
+            Files.deleteIfExists(temp);
+            throw new IOException("SHA-1 incorrecto extrayendo " + name + ": " + actual);
+        }
+        Files.move(temp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * Carga el descriptor del servidor instalado.
+     */
+    public static JsonObject loadDescriptor(String version, String gameDir) throws IOException {
+        Path path = getDescriptorPath(version, gameDir);
+        if (!Files.exists(path)) {
+            throw new IOException("Servidor " + version + " no instalado (falta " + path + ")");
+        }
+        return JsonParser.parseString(Files.readString(path)).getAsJsonObject();
+    }
+
+    /**
+     * Construye el comando de lanzamiento del servidor. Si javaPath es null se usa
+     * el runtime gestionado que pide la versión.
+     */
+    public static List<String> buildCommand(String version, String gameDir, String javaPath, String minRam,
+                                            String maxRam, JvmTuning.Profile profile, List<String> serverArgs)
+            throws IOException, InterruptedException {
+        JsonObject descriptor = loadDescriptor(version, gameDir);
+        if (javaPath == null || javaPath.isBlank()) {
+            javaPath = JavaRuntimeManager.resolveJava(descriptor.get("javaComponent").getAsString(), gameDir, 8);
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(javaPath);
+        command.add("-Xms" + minRam);
+        command.add("-Xmx" + maxRam);
+        command.addAll(JvmTuning.flagsFor(profile, javaPath, minRam, maxRam));
+
+        if (descriptor.get("bundled").getAsBoolean()) {
+            Path librariesDir = Paths.get(gameDir, "shared", "libraries").toAbsolutePath().normalize();
+            List<String> classpath = new ArrayList<>();
+            for (JsonElement element : descriptor.getAsJsonArray("libraries")) {
+                String path = element.getAsJsonObject().getAsJsonObject("downloads")
+                        .getAsJsonObject("artifact").get("path").getAsString();
+                classpath.add(librariesDir.resolve(path).toString());
+            }
+            classpath.add(descriptor.get("jar").getAsString());
+            command.add("-cp");
+            command.add(String.join(File.pathSeparator, classpath));
+            command.add(descriptor.get("mainClass").getAsString());
+        } else {
+            command.add("-jar");
+            command.add(descriptor.get("jar").getAsString());
+        }
+
+        command.add("nogui");
+        if (serverArgs != null) {
+            command.addAll(serverArgs);
+        }
+        return command;
+    }
+
+    /**
+     * Arranca el servidor en el directorio de la instancia y devuelve el proceso
+     * sin esperar a que termine.
+     */
+    public static Process startServer(String version, String gameDir, Path instanceDir, String javaPath,
+                                      String minRam, String maxRam, JvmTuning.Profile profile,
+                                      List<String> serverArgs) throws IOException, InterruptedException {
+        List<String> command = buildCommand(version, gameDir, javaPath, minRam, maxRam, profile, serverArgs);
+        Files.createDirectories(instanceDir);
+        LOGGER.info("🚀 Lanzando servidor " + version + " en " + instanceDir);
+        return new ProcessBuilder(command)
+                .directory(instanceDir.toFile())
+                .inheritIO()
+                .start();
+    }
+
+    /**
+     * Prepara varias instancias de servidor a partir de una única copia verificada
+     * del servidor en el almacén compartido: el jar se comprueba una vez y cada
+     * instancia solo recibe su directorio y los ficheros de la plantilla, en paralelo.
+     * El EULA solo se escribe si el llamador indica que se ha aceptado.
+     */
+    public static void provisionInstances(String version, String gameDir, List<Path> instanceDirs,
+                                          Path templateDir, boolean eulaAccepted, int threadCount)
+            throws IOException, InterruptedException {
+        JsonObject descriptor = loadDescriptor(version, gameDir);
+        Path serverJar = Paths.get(gameDir, "shared", "versions", version, version + "-server.jar")
+                .toAbsolutePath().normalize();
+        String sha1 = descriptor.get("sha1").getAsString();
+        if (!sha1.equalsIgnoreCase(DownloadUtil.calculateSHA1(serverJar))) {
+            throw new IOException("El server.jar compartido no coincide con su SHA-1, reinstala la versión " + version);
+        }
+
+        List<Path> templateFiles = new ArrayList<>();
+        if (templateDir != null && Files.isDirectory(templateDir)) {
+            try (Stream<Path> files = Files.walk(templateDir)) {
+                files.filter(Files::isRegularFile).forEach(templateFiles::add);
+            }
+        }
+
+        AtomicInteger ready = new AtomicInteger(0);
+        AtomicInteger failed = new AtomicInteger(0);
+        try (DownloadUtil.CloseableExecutorService ces =
+                     new DownloadUtil.CloseableExecutorService(Executors.newFixedThreadPool(threadCount))) {
+            ExecutorService executor = ces.get();
+            for (Path instanceDir : instanceDirs) {
+                executor.submit(() -> {
+                    try {
+                        Files.createDirectories(instanceDir);
+                        // Ficheros de configuración: el servidor los modifica, así que se copian
+                        for (Path file : templateFiles) {
+                            Path dest = instanceDir.resolve(templateDir.relativize(file).toString());
+                            if (!Files.exists(dest)) {
+                                Files.createDirectories(dest.getParent());
+                                Files.copy(file, dest);
+                            }
+                        }
+                        if (eulaAccepted) {
+                            Files.writeString(instanceDir.resolve("eula.txt"), "eula=true\n", StandardCharsets.UTF_8);
+                        }
+                        ready.incrementAndGet();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.SEVERE, "❌ Error preparando la instancia " + instanceDir, e);
+                        failed.incrementAndGet();
+                    }
+                });
+            }
+        }
+
+        LOGGER.info("✅ Instancias de servidor " + version + " preparadas: " + ready.get() + " correctas, "
+                + failed.get() + " fallos");
+        if (failed.get() > 0) {
+            throw new IOException("No se pudieron preparar " + failed.get() + " instancias");
+        }
+    }
+}
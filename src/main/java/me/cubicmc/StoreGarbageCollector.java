@@ -0,0 +1,488 @@
+package me.cubicmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Recolector de basura de gameDir/shared. Calcula el conjunto vivo a partir
+ * de todos los JSON de versión y perfiles de loader instalados y elimina las
+ * bibliotecas, assets, natives, runtimes y directorios de versión que ya no
+ * referencia ninguno, además de las entradas de shared/forge-cache que ya no
+ * enlaza ninguna biblioteca y los logs de processors de instalaciones terminadas.
+ */
+public class StoreGarbageCollector {
+    private static final Logger LOGGER = Logger.getLogger(StoreGarbageCollector.class.getName());
+
+    /**
+     * Resultado de una pasada: qué se puede eliminar (o se eliminó) por categoría.
+     */
+    public record Report(Map<String, Integer> files, Map<String, Long> bytes, boolean dryRun, int failures) {
+
+        public long totalBytes() {
+            return bytes.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public int totalFiles() {
+            return files.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    /**
+     * Conjunto vivo calculado a partir de las versiones instaladas.
+     */
+    private static class LiveSet {
+        final Set<String> versions = new HashSet<>();
+        final Set<Path> libraries = new HashSet<>();
+        final Set<String> assetIndexes = new HashSet<>();
+        final Set<String> assetObjects = new HashSet<>();
+        final Set<String> runtimes = new HashSet<>();
+        // Si falta algún índice de assets no se puede saber qué objetos siguen vivos
+        boolean assetsComplete = true;
+    }
+
+    /**
+     * Calcula lo que se puede liberar sin borrar nada.
+     */
+    public static Report dryRun(String gameDir) throws IOException {
+        return collect(gameDir, true, 1);
+    }
+
+    /**
+     * Calcula el conjunto vivo y, salvo en modo simulación, elimina en paralelo
+     * todo lo demás. Toma el bloqueo exclusivo del almacén durante toda la pasada.
+     */
+    public static Report collect(String gameDir, boolean dryRun, int threadCount) throws IOException {
+        Path shared = Paths.get(gameDir, "shared").toAbsolutePath().normalize();
+        if (!Files.isDirectory(shared)) {
+            return new Report(Map.of(), Map.of(), dryRun, 0);
+        }
+
+        LOGGER.info("🔒 Adquiriendo el bloqueo exclusivo del almacén " + shared);
+        try (var _ = StoreLock.exclusive(gameDir)) {
+            LiveSet live = computeLiveSet(shared);
+            LOGGER.info("🧮 Conjunto vivo: " + live.versions.size() + " versiones, "
+                    + live.libraries.size() + " bibliotecas, "
+                    + live.assetIndexes.size() + " índices, "
+                    + live.assetObjects.size() + " objetos de assets, "
+                    + live.runtimes.size() + " runtimes");
+
+            Map<String, List<Path>> garbage = findGarbage(shared, live);
+            return dryRun ? measure(garbage) : delete(shared, garbage, threadCount);
+        }
+    }
+
+    private static LiveSet computeLiveSet(Path shared) throws IOException {
+        LiveSet live = new LiveSet();
+        Path versionsDir = shared.resolve("versions");
+        Path librariesDir = shared.resolve("libraries");
+        Path indexesDir = shared.resolve("assets").resolve("indexes");
+
+        if (Files.isDirectory(versionsDir)) {
+            try (Stream<Path> dirs = Files.list(versionsDir)) {
+                for (Path dir : (Iterable<Path>) dirs::iterator) {
+                    String id = dir.getFileName().toString();
+                    // Versión de cliente o servidor dedicado instalado
+                    if (Files.isRegularFile(dir.resolve(id + ".json"))
+                            || Files.isRegularFile(dir.resolve(id + "-server.json"))) {
+                        live.versions.add(id);
+                    }
+                }
+            }
+        }
+
+        for (String id : live.versions) {
+            // Además del JSON de versión, los perfiles de instalación de loaders guardados junto a él
+            try (Stream<Path> files = Files.list(versionsDir.resolve(id))) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (!file.getFileName().toString().endsWith(".json")) {
+                        continue;
+                    }
+                    JsonObject descriptor;
+                    try {
+                        descriptor = JsonParser.parseString(Files.readString(file)).getAsJsonObject();
+                    } catch (RuntimeException e) {
+                        LOGGER.warning("⚠️ JSON ilegible, se ignora: " + file);
+                        continue;
+                    }
+                    addLibraries(descriptor, librariesDir, live);
+                    if (file.getFileName().toString().equals(id + ".json")) {
+                        addVersionReferences(descriptor, indexesDir, live);
+                    } else if (descriptor.has("javaComponent")) {
+                        live.runtimes.add(descriptor.get("javaComponent").getAsString());
+                    }
+                }
+            }
+        }
+        return live;
+    }
+
+    private static void addLibraries(JsonObject descriptor, Path librariesDir, LiveSet live) {
+        if (!descriptor.has("libraries") || !descriptor.get("libraries").isJsonArray()) {
+            return;
+        }
+        for (JsonElement element : descriptor.getAsJsonArray("libraries")) {
+            JsonObject lib = element.getAsJsonObject();
+            if (lib.has("downloads")) {
+                JsonObject downloads = lib.getAsJsonObject("downloads");
+                if (downloads.has("artifact") && downloads.getAsJsonObject("artifact").has("path")) {
+                    live.libraries.add(librariesDir.resolve(downloads.getAsJsonObject("artifact").get("path").getAsString()).normalize());
+                }
+                if (downloads.has("classifiers")) {
+                    for (Map.Entry<String, JsonElement> classifier : downloads.getAsJsonObject("classifiers").entrySet()) {
+                        JsonObject artifact = classifier.getValue().getAsJsonObject();
+                        if (artifact.has("path")) {
+                            live.libraries.add(librariesDir.resolve(artifact.get("path").getAsString()).normalize());
+                        }
+                    }
+                }
+            }
+            // Bibliotecas en formato "grupo:artefacto:versión[:clasificador]" (Fabric, perfiles de Forge)
+            if (lib.has("name")) {
+                String[] parts = lib.get("name").getAsString().split(":");
+                if (parts.length >= 3) {
+                    String classifier = parts.length > 3 ? "-" + parts[3] : "";
+                    live.libraries.add(librariesDir.resolve(Paths.get(parts[0].replace(".", "/"), parts[1], parts[2],
+                            parts[1] + "-" + parts[2] + classifier + ".jar")).normalize());
+                }
+            }
+        }
+    }
+
+    private static void addVersionReferences(JsonObject descriptor, Path indexesDir, LiveSet live) throws IOException {
+        if (descriptor.has("assetIndex")) {
+            String indexId = descriptor.getAsJsonObject("assetIndex").get("id").getAsString();
+            live.assetIndexes.add(indexId);
+            Path indexFile = indexesDir.resolve(indexId + ".json");
+            if (Files.isRegularFile(indexFile)) {
+                JsonObject index = JsonParser.parseString(Files.readString(indexFile)).getAsJsonObject();
+                for (Map.Entry<String, JsonElement> entry : index.getAsJsonObject("objects").entrySet()) {
+                    live.assetObjects.add(entry.getValue().getAsJsonObject().get("hash").getAsString());
+                }
+            } else {
+                LOGGER.warning("⚠️ Falta el índice de assets " + indexId + ", no se recolectarán objetos de assets");
+                live.assetsComplete = false;
+            }
+        } else if (descriptor.has("assets")) {
+            live.assetIndexes.add(descriptor.get("assets").getAsString());
+        }
+
+        // Las versiones que heredan usan el runtime de su versión base
+        if (descriptor.has("javaVersion") || !descriptor.has("inheritsFrom")) {
+            live.runtimes.add(JavaRuntimeManager.getComponent(descriptor, null));
+        }
+    }
+
+    private static Map<String, List<Path>> findGarbage(Path shared, LiveSet live) throws IOException {
+        Map<String, List<Path>> garbage = new LinkedHashMap<>();
+
+        // Directorios de versión sin JSON (desinstaladas o a medio instalar) y sus natives
+        garbage.put("versions", listChildren(shared.resolve("versions"), p -> !live.versions.contains(name(p))));
+        garbage.put("natives", listChildren(shared.resolve("natives"), p -> !live.versions.contains(name(p))));
+
+        List<Path> libraries = new ArrayList<>();
+        Path librariesDir = shared.resolve("libraries");
+        if (Files.isDirectory(librariesDir)) {
+            try (Stream<Path> files = Files.walk(librariesDir)) {
+                files.filter(Files::isRegularFile)
+                        .filter(p -> !live.libraries.contains(p.normalize()))
+                        .forEach(libraries::add);
+            }
+        }
+        garbage.put("libraries", libraries);
+
+        Path assetsDir = shared.resolve("assets");
+        garbage.put("indexes", listChildren(assetsDir.resolve("indexes"),
+                p -> !live.assetIndexes.contains(name(p).replaceFirst("\\.json$", ""))));
+        garbage.put("virtual", listChildren(assetsDir.resolve("virtual"), p -> !live.assetIndexes.contains(name(p))));
+
+        List<Path> objects = new ArrayList<>();
+        if (live.assetsComplete && Files.isDirectory(assetsDir.resolve("objects"))) {
+            try (Stream<Path> files = Files.walk(assetsDir.resolve("objects"))) {
+                files.filter(Files::isRegularFile)
+                        .filter(p -> !live.assetObjects.contains(name(p)))
+                        .forEach(objects::add);
+            }
+        }
+        garbage.put("objects", objects);
+
+        // Runtimes: componentes que nadie pide y objetos que ya no enlaza ningún runtime vivo
+        Path runtimesDir = shared.resolve("runtimes");
+        garbage.put("runtimes", listChildren(runtimesDir,
+                p -> Files.isDirectory(p) && !name(p).equals("objects") && !live.runtimes.contains(name(p))));
+        garbage.put("runtime-objects", findDeadRuntimeObjects(runtimesDir, live));
+
+        // Forge: logs de processors de versiones ya instaladas y entradas de caché huérfanas
+        List<Path> logs = new ArrayList<>();
+        for (String id : live.versions) {
+            Path dir = shared.resolve("versions").resolve(id).resolve("processors");
+            if (Files.isDirectory(dir)) {
+                logs.add(dir);
+            }
+        }
+        garbage.put("forge-logs", logs);
+        garbage.put("forge-cache", findDeadForgeCache(shared.resolve("forge-cache"), libraries));
+        return garbage;
+    }
+
+    /**
+     * Una entrada de la caché de processors está viva mientras alguno de sus
+     * ficheros siga enlazado fuera de ella (nlink > 1), sin contar las
+     * bibliotecas que se eliminan en esta misma pasada. Las entradas que se
+     * guardaron como copia (sin hardlink) se recolectan siempre; las .part son
+     * restos de instalaciones interrumpidas.
+     */
+    private static List<Path> findDeadForgeCache(Path cacheDir, List<Path> dyingLibraries) throws IOException {
+        if (!Files.isDirectory(cacheDir)) {
+            return List.of();
+        }
+        Map<Object, Integer> dying = new HashMap<>();
+        for (Path library : dyingLibraries) {
+            Object key = Files.readAttributes(library, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).fileKey();
+            if (key != null) {
+                dying.merge(key, 1, Integer::sum);
+            }
+        }
+        List<Path> dead = new ArrayList<>();
+        for (Path prefix : listChildren(cacheDir, Files::isDirectory)) {
+            for (Path entry : listChildren(prefix, Files::isDirectory)) {
+                if (name(entry).endsWith(".part") || !isLinkedElsewhere(entry, dying)) {
+                    dead.add(entry);
+                }
+            }
+        }
+        return dead;
+    }
+
+    private static boolean isLinkedElsewhere(Path entry, Map<Object, Integer> dying) throws IOException {
+        try (Stream<Path> files = Files.list(entry)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (!attrs.isRegularFile()) {
+                    continue;
+                }
+                int links;
+                try {
+                    links = (Integer) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS);
+                } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                    // Sin recuento de enlaces (Windows) no se puede saber: se conserva
+                    return true;
+                }
+                if (links - dying.getOrDefault(attrs.fileKey(), 0) > 1) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<Path> findDeadRuntimeObjects(Path runtimesDir, LiveSet live) throws IOException {
+        Path objectsDir = runtimesDir.resolve("objects");
+        if (!Files.isDirectory(objectsDir)) {
+            return List.of();
+        }
+        // Un objeto está vivo si algún runtime vivo lo enlaza (mismo inodo)
+        Set<Object> liveKeys = new HashSet<>();
+        for (String runtime : live.runtimes) {
+            Path dir = runtimesDir.resolve(runtime);
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isRegularFile() && attrs.fileKey() != null) {
+                        liveKeys.add(attrs.fileKey());
+                    }
+                }
+            }
+        }
+        List<Path> dead = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(objectsDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                // Sin fileKey (Windows) no se puede saber si está enlazado: se conserva
+                if (attrs.isRegularFile() && attrs.fileKey() != null && !liveKeys.contains(attrs.fileKey())) {
+                    dead.add(file);
+                }
+            }
+        }
+        return dead;
+    }
+
+    private static Report measure(Map<String, List<Path>> garbage) {
+        Map<String, Integer> files = new LinkedHashMap<>();
+        Map<String, Long> bytes = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Path>> entry : garbage.entrySet()) {
+            long size = 0;
+            int count = 0;
+            for (Path path : entry.getValue()) {
+                long[] measured = sizeOf(path);
+                count += (int) measured[0];
+                size += measured[1];
+            }
+            files.put(entry.getKey(), count);
+            bytes.put(entry.getKey(), size);
+        }
+        Report report = new Report(files, bytes, true, 0);
+        log(report);
+        return report;
+    }
+
+    private static Report delete(Path shared, Map<String, List<Path>> garbage, int threadCount) throws IOException {
+        Map<String, AtomicInteger> files = new LinkedHashMap<>();
+        Map<String, AtomicLong> bytes = new LinkedHashMap<>();
+        AtomicInteger failures = new AtomicInteger(0);
+
+        try (DownloadUtil.CloseableExecutorService ces =
+                     new DownloadUtil.CloseableExecutorService(Executors.newFixedThreadPool(threadCount))) {
+            ExecutorService executor = ces.get();
+            for (Map.Entry<String, List<Path>> entry : garbage.entrySet()) {
+                AtomicInteger count = files.computeIfAbsent(entry.getKey(), k -> new AtomicInteger());
+                AtomicLong size = bytes.computeIfAbsent(entry.getKey(), k -> new AtomicLong());
+                for (Path path : entry.getValue()) {
+                    executor.submit(() -> {
+                        try {
+                            long[] measured = sizeOf(path);
+                            deleteRecursively(path);
+                            count.addAndGet((int) measured[0]);
+                            size.addAndGet(measured[1]);
+                        } catch (IOException e) {
+                            LOGGER.log(Level.WARNING, "⚠️ No se pudo eliminar " + path, e);
+                            failures.incrementAndGet();
+                        }
+                    });
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Recolección interrumpida", e);
+        }
+
+        // Quitar los directorios que se quedaron vacíos en libraries y objects
+        pruneEmptyDirectories(shared.resolve("libraries"));
+        pruneEmptyDirectories(shared.resolve("assets").resolve("objects"));
+        pruneEmptyDirectories(shared.resolve("forge-cache"));
+
+        Map<String, Integer> fileCounts = new LinkedHashMap<>();
+        Map<String, Long> byteCounts = new LinkedHashMap<>();
+        files.forEach((k, v) -> fileCounts.put(k, v.get()));
+        bytes.forEach((k, v) -> byteCounts.put(k, v.get()));
+        Report report = new Report(fileCounts, byteCounts, false, failures.get());
+        log(report);
+        return report;
+    }
+
+    private static void log(Report report) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(report.dryRun() ? "🧹 Simulación de recolección: " : "🧹 Recolección completada: ")
+                .append(report.totalFiles()).append(" ficheros, ")
+                .append(report.totalBytes() >> 20).append(" MB")
+                .append(report.dryRun() ? " recuperables" : " liberados");
+        report.files().forEach((category, count) -> sb.append("\n   ").append(category).append(": ")
+                .append(count).append(" ficheros, ").append(report.bytes().get(category) >> 10).append(" KB"));
+        if (report.failures() > 0) {
+            sb.append("\n   ").append(report.failures()).append(" fallos");
+        }
+        LOGGER.info(sb.toString());
+    }
+
+    private interface PathFilter {
+        boolean test(Path path) throws IOException;
+    }
+
+    private static List<Path> listChildren(Path dir, PathFilter filter) throws IOException {
+        List<Path> result = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return result;
+        }
+        try (Stream<Path> children = Files.list(dir)) {
+            for (Path child : (Iterable<Path>) children::iterator) {
+                if (filter.test(child)) {
+                    result.add(child);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String name(Path path) {
+        return path.getFileName().toString();
+    }
+
+    /**
+     * Número de ficheros y bytes bajo la ruta (fichero o directorio).
+     */
+    private static long[] sizeOf(Path path) {
+        long[] result = new long[2];
+        try (Stream<Path> files = Files.walk(path)) {
+            files.forEach(p -> {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (!attrs.isDirectory()) {
+                        result[0]++;
+                        result[1] += attrs.size();
+                    }
+                } catch (IOException e) {
+                    // Fichero desaparecido entre el listado y la lectura
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.fine("No se pudo medir " + path + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        } else {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void pruneEmptyDirectories(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory).sorted(Comparator.reverseOrder())::iterator) {
+                if (dir.equals(root)) {
+                    continue;
+                }
+                try (Stream<Path> children = Files.list(dir)) {
+                    if (children.findAny().isEmpty()) {
+                        Files.delete(dir);
+                    }
+                }
+            }
+        }
+    }
+}
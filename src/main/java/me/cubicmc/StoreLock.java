@@ -0,0 +1,127 @@
+package me.cubicmc;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bloqueo del almacén gameDir/shared. Las instalaciones toman el bloqueo
+ * compartido y la recolección de basura el exclusivo, tanto entre hilos de
+ * este proceso como entre procesos (bloqueo sobre shared/.lock).
+ */
+public class StoreLock implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(StoreLock.class.getName());
+
+    private static final Map<Path, Holder> HOLDERS = new ConcurrentHashMap<>();
+
+    /**
+     * Estado por almacén: el bloqueo de fichero compartido se abre una sola vez
+     * por proceso y se mantiene mientras haya algún hilo instalando.
+     */
+    private static class Holder {
+        final ReentrantReadWriteLock rw = new ReentrantReadWriteLock(true);
+        final Path lockFile;
+        FileChannel channel;
+        FileLock fileLock;
+        int sharedCount;
+
+        Holder(Path lockFile) {
+            this.lockFile = lockFile;
+        }
+
+        synchronized void acquireFile(boolean shared) throws IOException {
+            if (shared && sharedCount++ > 0) {
+                return;
+            }
+            try {
+                Files.createDirectories(lockFile.getParent());
+                channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.READ);
+                fileLock = channel.lock(0, Long.MAX_VALUE, shared);
+            } catch (IOException e) {
+                if (shared) {
+                    sharedCount--;
+                }
+                closeChannel();
+                throw e;
+            }
+        }
+
+        synchronized void releaseFile(boolean shared) {
+            if (shared && --sharedCount > 0) {
+                return;
+            }
+            closeChannel();
+        }
+
+        private void closeChannel() {
+            try {
+                if (fileLock != null) {
+                    fileLock.release();
+                }
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "⚠️ Error liberando el bloqueo " + lockFile, e);
+            } finally {
+                fileLock = null;
+                channel = null;
+            }
+        }
+    }
+
+    private final Holder holder;
+    private final Lock lock;
+    private final boolean shared;
+
+    private StoreLock(Holder holder, Lock lock, boolean shared) {
+        this.holder = holder;
+        this.lock = lock;
+        this.shared = shared;
+    }
+
+    /**
+     * Bloqueo compartido para operaciones que escriben en el almacén.
+     */
+    public static StoreLock shared(String gameDir) throws IOException {
+        return acquire(gameDir, true);
+    }
+
+    /**
+     * Bloqueo exclusivo; espera a que terminen las instalaciones en curso.
+     */
+    public static StoreLock exclusive(String gameDir) throws IOException {
+        return acquire(gameDir, false);
+    }
+
+    private static StoreLock acquire(String gameDir, boolean shared) throws IOException {
+        Path lockFile = Paths.get(gameDir, "shared", ".lock").toAbsolutePath().normalize();
+        Holder holder = HOLDERS.computeIfAbsent(lockFile, Holder::new);
+        Lock lock = shared ? holder.rw.readLock() : holder.rw.writeLock();
+        lock.lock();
+        try {
+            holder.acquireFile(shared);
+        } catch (IOException | RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+        return new StoreLock(holder, lock, shared);
+    }
+
+    @Override
+    public void close() {
+        holder.releaseFile(shared);
+        lock.unlock();
+    }
+}